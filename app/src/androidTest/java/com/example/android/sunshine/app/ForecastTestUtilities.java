@@ -0,0 +1,48 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.MatrixCursor;
+import android.text.format.DateUtils;
+
+/*
+    Builds the cursors the forecast list loads, with the real ForecastFragment projection, for
+    the tests of the rows it binds.
+ */
+class ForecastTestUtilities {
+
+    static final String TEST_LOCATION = "94043";
+    static final String TEST_COORD_LAT = "37.4";
+    static final String TEST_COORD_LONG = "-122.1";
+
+    // Far enough ahead that no row is labelled today and the labels don't depend on position
+    static final long FIRST_DAY = System.currentTimeMillis() + 30 * DateUtils.DAY_IN_MILLIS;
+
+    static MatrixCursor createForecastCursor() {
+        return new MatrixCursor(ForecastFragment.FORECAST_COLUMNS);
+    }
+
+    /**
+     * Adds a day at the test location, in the order of ForecastFragment's COL_ indices.
+     */
+    static void addDay(MatrixCursor cursor, long id, long date, String description,
+                       double high, double low, int weatherId) {
+        cursor.addRow(new Object[]{id, date, description, high, low, TEST_LOCATION, weatherId,
+                TEST_COORD_LAT, TEST_COORD_LONG});
+    }
+
+    /**
+     * @return count days from FIRST_DAY + firstDay days, all with the same weather
+     */
+    static ForecastRows createRows(Context context, int firstDay, int count, int weatherId) {
+        MatrixCursor cursor = createForecastCursor();
+        for (int i = firstDay; i < firstDay + count; i++) {
+            addDay(cursor, 100L + i, FIRST_DAY + i * DateUtils.DAY_IN_MILLIS, "Clear", 21.0, 8.0,
+                    weatherId);
+        }
+        try {
+            return ForecastRows.fromCursor(context, cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+}
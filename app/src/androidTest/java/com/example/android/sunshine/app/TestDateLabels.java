@@ -0,0 +1,117 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.text.format.DateUtils;
+import android.text.format.Time;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+
+/*
+    Checks that the cached date labels read as the ones Utility used to format on every call,
+    and measures labels per second for both.
+ */
+public class TestDateLabels extends AndroidTestCase {
+
+    private static final String LOG_TAG = TestDateLabels.class.getSimpleName();
+
+    private static final int FORECAST_DAYS = 14;
+    private static final int BENCHMARK_ROUNDS = 200;
+
+    public void testLabelsMatchUncachedFormatting() {
+        DateLabels labels = new DateLabels(mContext);
+        long now = System.currentTimeMillis();
+        for (int i = -1; i < FORECAST_DAYS; i++) {
+            long date = now + i * DateUtils.DAY_IN_MILLIS;
+            assertEquals(uncachedFriendlyDayString(mContext, date, true),
+                    labels.getFriendlyDayString(date, true));
+            assertEquals(uncachedFriendlyDayString(mContext, date, false),
+                    labels.getFriendlyDayString(date, false));
+            assertEquals(uncachedFullFriendlyDayString(mContext, date),
+                    labels.getFullFriendlyDayString(date));
+            assertEquals(uncachedDayName(mContext, date), labels.getDayName(date));
+            assertEquals(new SimpleDateFormat("MMMM dd").format(date),
+                    labels.getFormattedMonthDay(date));
+        }
+    }
+
+    public void testInvalidateKeepsLabels() {
+        DateLabels labels = new DateLabels(mContext);
+        long tomorrow = System.currentTimeMillis() + DateUtils.DAY_IN_MILLIS;
+        String label = labels.getFriendlyDayString(tomorrow, false);
+        labels.invalidate();
+        assertEquals(label, labels.getFriendlyDayString(tomorrow, false));
+        assertEquals(mContext.getString(R.string.tomorrow), label);
+    }
+
+    public void testBenchmark() {
+        DateLabels labels = new DateLabels(mContext);
+        long now = System.currentTimeMillis();
+        long[] dates = new long[FORECAST_DAYS];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = now + i * DateUtils.DAY_IN_MILLIS;
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            for (int i = 0; i < dates.length; i++) {
+                uncachedFriendlyDayString(mContext, dates[i], i == 0);
+            }
+        }
+        long uncachedNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            for (int i = 0; i < dates.length; i++) {
+                labels.getFriendlyDayString(dates[i], i == 0);
+            }
+        }
+        long cachedNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        long count = (long) BENCHMARK_ROUNDS * dates.length;
+        Log.d(LOG_TAG, "Labels per second, uncached: " + count * 1000000000L / uncachedNanos
+                + ", cached: " + count * 1000000000L / cachedNanos);
+    }
+
+    // How Utility formatted the labels before DateLabels
+
+    private static String uncachedFriendlyDayString(Context context, long dateInMillis,
+                                                    boolean displayLongToday) {
+        Time time = new Time();
+        time.setToNow();
+        long currentTime = System.currentTimeMillis();
+        int julianDay = Time.getJulianDay(dateInMillis, time.gmtoff);
+        int currentJulianDay = Time.getJulianDay(currentTime, time.gmtoff);
+        if (displayLongToday && julianDay == currentJulianDay) {
+            return context.getString(R.string.format_full_friendly_date,
+                    context.getString(R.string.today),
+                    new SimpleDateFormat("MMMM dd").format(dateInMillis));
+        } else if (julianDay < currentJulianDay + 7) {
+            return uncachedDayName(context, dateInMillis);
+        } else {
+            return new SimpleDateFormat("EEE MMM dd").format(dateInMillis);
+        }
+    }
+
+    private static String uncachedFullFriendlyDayString(Context context, long dateInMillis) {
+        return context.getString(R.string.format_full_friendly_date,
+                uncachedDayName(context, dateInMillis),
+                new SimpleDateFormat("MMMM dd").format(dateInMillis));
+    }
+
+    private static String uncachedDayName(Context context, long dateInMillis) {
+        Time t = new Time();
+        t.setToNow();
+        int julianDay = Time.getJulianDay(dateInMillis, t.gmtoff);
+        int currentJulianDay = Time.getJulianDay(System.currentTimeMillis(), t.gmtoff);
+        if (julianDay == currentJulianDay) {
+            return context.getString(R.string.today);
+        } else if (julianDay == currentJulianDay + 1) {
+            return context.getString(R.string.tomorrow);
+        } else {
+            return new SimpleDateFormat("EEEE").format(dateInMillis);
+        }
+    }
+}
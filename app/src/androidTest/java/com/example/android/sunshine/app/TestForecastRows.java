@@ -0,0 +1,47 @@
+package com.example.android.sunshine.app;
+
+import android.database.MatrixCursor;
+import android.test.AndroidTestCase;
+import android.text.format.DateUtils;
+
+/*
+    Checks that the rows the forecast list binds carry what binding used to format itself.
+ */
+public class TestForecastRows extends AndroidTestCase {
+
+    public void testRowsMatchUtilityFormatting() {
+        long today = System.currentTimeMillis();
+        long dayAfterTomorrow = today + 2 * DateUtils.DAY_IN_MILLIS;
+        MatrixCursor cursor = ForecastTestUtilities.createForecastCursor();
+        ForecastTestUtilities.addDay(cursor, 1L, today, "Clear", 21.4, 8.2, 800);
+        ForecastTestUtilities.addDay(cursor, 2L, dayAfterTomorrow, "Rain", 15.0, 6.9, 501);
+
+        ForecastRows rows = ForecastRows.fromCursor(mContext, cursor);
+        cursor.close();
+        assertEquals(2, rows.size());
+        assertEquals(ForecastTestUtilities.TEST_COORD_LAT, rows.coordLat);
+        assertEquals(ForecastTestUtilities.TEST_COORD_LONG, rows.coordLong);
+        assertEquals(1, rows.indexOfDate(dayAfterTomorrow));
+        assertEquals(-1, rows.indexOfDate(today + 1));
+
+        ForecastRows.Row first = rows.get(0);
+        assertEquals(1L, first.id);
+        assertEquals(Utility.getFriendlyDayString(mContext, today, true), first.longDateLabel);
+        assertEquals(Utility.getFriendlyDayString(mContext, today, false), first.dateLabel);
+        assertEquals(Utility.formatTemperature(mContext, 21.4), first.high);
+        assertEquals(mContext.getString(R.string.a11y_low_temp,
+                Utility.formatTemperature(mContext, 8.2)), first.lowA11y);
+        assertEquals(R.drawable.art_clear, first.artResource);
+
+        ForecastRows.Row second = rows.get(1);
+        assertEquals(second.dateLabel, second.longDateLabel);
+        assertEquals(Utility.getStringForWeatherCondition(mContext, 501), second.description);
+        assertEquals(R.drawable.ic_rain, second.iconResource);
+    }
+
+    public void testEmptyCursor() {
+        MatrixCursor cursor = ForecastTestUtilities.createForecastCursor();
+        assertEquals(0, ForecastRows.fromCursor(mContext, cursor).size());
+        cursor.close();
+    }
+}
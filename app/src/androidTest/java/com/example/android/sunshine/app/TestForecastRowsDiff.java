@@ -0,0 +1,100 @@
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.view.View;
+import android.widget.AbsListView;
+
+/*
+    Checks that reloading the forecast list only notifies the days that changed, and that the
+    adapter, with its choice manager and stable ids, passes that on.
+ */
+public class TestForecastRowsDiff extends AndroidTestCase {
+
+    public void testUnchangedReloadNotifiesNothing() {
+        ForecastRows first = createRows(0, 7, 800);
+        ForecastRows second = createRows(0, 7, 800).diffFrom(first);
+        ForecastRowsDiff diff = second.getDiffFrom(first);
+        assertNotNull(diff);
+        assertTrue("Error: unchanged rows notified " + diff, diff.isEmpty());
+        assertSame(ForecastRowsDiff.NONE, second.getDiffFrom(second));
+    }
+
+    public void testNextDayRemovesFirstAndAppends() {
+        ForecastRows first = createRows(0, 7, 800);
+        ForecastRows second = createRows(1, 7, 800).diffFrom(first);
+        assertEquals("remove 0+1, insert 6+1", second.getDiffFrom(first).toString());
+    }
+
+    public void testChangedWeatherIsAChange() {
+        ForecastRows first = createRows(0, 7, 800);
+        ForecastRows second = createRows(0, 7, 501).diffFrom(first);
+        assertEquals("change 0+7", second.getDiffFrom(first).toString());
+    }
+
+    public void testShrinkAndGrow() {
+        ForecastRows full = createRows(0, 7, 800);
+        ForecastRows shorter = createRows(0, 3, 800).diffFrom(full);
+        assertEquals("remove 3+4", shorter.getDiffFrom(full).toString());
+        ForecastRows empty = createRows(0, 0, 800).diffFrom(shorter);
+        assertEquals("remove 0+3", empty.getDiffFrom(shorter).toString());
+        ForecastRows grown = createRows(0, 7, 800).diffFrom(empty);
+        assertEquals("insert 0+7", grown.getDiffFrom(empty).toString());
+    }
+
+    public void testUnknownBaseRebindsEverything() {
+        ForecastRows first = createRows(0, 7, 800);
+        ForecastRows other = createRows(0, 7, 800);
+        ForecastRows second = createRows(1, 7, 800).diffFrom(first);
+        assertNull(second.getDiffFrom(other));
+        assertNull(second.getDiffFrom(null));
+    }
+
+    public void testAdapterNotifiesTheDiff() {
+        View emptyView = new View(mContext);
+        ForecastAdapter adapter = new ForecastAdapter(mContext, null, emptyView,
+                AbsListView.CHOICE_MODE_SINGLE);
+        assertTrue(adapter.hasStableIds());
+        assertEquals(0, adapter.getItemCount());
+        assertEquals(RecyclerView.NO_POSITION, adapter.getSelectedItemPosition());
+
+        final int[] counts = new int[3];
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                counts[0]++;
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                counts[1] += itemCount;
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                counts[2] += itemCount;
+            }
+        });
+
+        ForecastRows first = createRows(0, 7, 800);
+        adapter.swapRows(first);
+        assertEquals(7, adapter.getItemCount());
+        assertEquals(first.get(3).date, adapter.getItemId(3));
+        assertEquals(View.GONE, emptyView.getVisibility());
+        assertEquals(1, counts[0]);
+
+        // The next day: one day drops off the front, one is added at the end
+        adapter.swapRows(createRows(1, 7, 800).diffFrom(first));
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[1]);
+        assertEquals(1, counts[2]);
+
+        adapter.swapRows(null);
+        assertEquals(0, adapter.getItemCount());
+        assertEquals(View.VISIBLE, emptyView.getVisibility());
+    }
+
+    private ForecastRows createRows(int firstDay, int count, int weatherId) {
+        return ForecastTestUtilities.createRows(mContext, firstDay, count, weatherId);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.android.sunshine.app;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+import java.util.Locale;
+
+/*
+    Checks that the settings snapshot follows the preferences, and that its version only moves
+    when a setting it holds changes.
+ */
+public class TestSettingsSnapshot extends AndroidTestCase {
+
+    private String mUnits;
+    private String mArtPack;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mUnits = getPreferences().getString(mContext.getString(R.string.pref_units_key), null);
+        mArtPack = getPreferences().getString(mContext.getString(R.string.pref_art_pack_key),
+                null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        getPreferences().edit()
+                .putString(mContext.getString(R.string.pref_units_key), mUnits)
+                .putString(mContext.getString(R.string.pref_art_pack_key), mArtPack)
+                .commit();
+        SettingsSnapshot.refresh(mContext);
+        super.tearDown();
+    }
+
+    public void testVersionFollowsChanges() {
+        SettingsSnapshot before = SettingsSnapshot.refresh(mContext);
+        assertSame(before, SettingsSnapshot.get(mContext));
+
+        // Unrelated preferences and unchanged values keep the snapshot
+        Utility.resetLocationStatus(mContext);
+        assertSame(before, SettingsSnapshot.refresh(mContext));
+
+        String units = mContext.getString(before.metric
+                ? R.string.pref_units_imperial : R.string.pref_units_metric);
+        getPreferences().edit()
+                .putString(mContext.getString(R.string.pref_units_key), units)
+                .commit();
+        SettingsSnapshot after = SettingsSnapshot.refresh(mContext);
+        assertEquals(!before.metric, after.metric);
+        assertEquals(before.location, after.location);
+        assertTrue("Error: version didn't increase", after.version > before.version);
+        assertEquals(after.metric, Utility.isMetric(mContext));
+    }
+
+    public void testArtUrls() {
+        String cuteDogs = mContext.getString(R.string.pref_art_pack_cute_dogs);
+        getPreferences().edit()
+                .putString(mContext.getString(R.string.pref_art_pack_key), cuteDogs)
+                .commit();
+        SettingsSnapshot settings = SettingsSnapshot.refresh(mContext);
+        assertFalse(settings.localGraphics);
+        assertFalse(Utility.usingLocalGraphics(mContext));
+        assertEquals(String.format(Locale.US, cuteDogs, "light_clouds"),
+                Utility.getArtUrlForWeatherCondition(mContext, 801));
+        assertEquals(String.format(Locale.US, cuteDogs, "unlisted"),
+                settings.getArtUrl("unlisted"));
+        assertNull(Utility.getArtUrlForWeatherCondition(mContext, 0));
+
+        getPreferences().edit()
+                .putString(mContext.getString(R.string.pref_art_pack_key),
+                        mContext.getString(R.string.pref_art_pack_sunshine))
+                .commit();
+        assertTrue(SettingsSnapshot.refresh(mContext).localGraphics);
+    }
+
+    private SharedPreferences getPreferences() {
+        return PreferenceManager.getDefaultSharedPreferences(mContext);
+    }
+}
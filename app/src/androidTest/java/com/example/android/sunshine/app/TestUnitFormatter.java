@@ -0,0 +1,93 @@
+package com.example.android.sunshine.app;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+/*
+    Checks that the formatting tables give what String.format gave on every call, in both units.
+ */
+public class TestUnitFormatter extends AndroidTestCase {
+
+    private static final String[] DIRECTIONS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+
+    private String mUnits;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mUnits = getPreferences().getString(mContext.getString(R.string.pref_units_key), null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        getPreferences().edit()
+                .putString(mContext.getString(R.string.pref_units_key), mUnits)
+                .commit();
+        SettingsSnapshot.refresh(mContext);
+        super.tearDown();
+    }
+
+    public void testMetric() {
+        setUnits(R.string.pref_units_metric);
+        checkFormatting(new UnitFormatter(mContext), true);
+    }
+
+    public void testImperial() {
+        setUnits(R.string.pref_units_imperial);
+        checkFormatting(new UnitFormatter(mContext), false);
+    }
+
+    public void testDirectionBuckets() {
+        for (float degrees = -45; degrees <= 405; degrees += 0.5f) {
+            int index = UnitFormatter.getDirectionIndex(degrees);
+            float normalized = (degrees % 360 + 360) % 360;
+            if (degrees < 0 || degrees > 360) {
+                // The old if/else chain calls anything out of range north
+                assertEquals(0, index);
+            } else {
+                assertEquals("Error: wrong direction for " + degrees,
+                        (int) ((normalized + 22.5f) / 45) % 8, index);
+            }
+        }
+        assertEquals(8, UnitFormatter.getDirectionIndex(Float.NaN));
+    }
+
+    private void checkFormatting(UnitFormatter formatter, boolean metric) {
+        assertEquals(metric, formatter.isMetric());
+        String temperatureFormat = mContext.getString(R.string.format_temperature);
+        for (double celsius = -80; celsius <= 60; celsius += 0.05) {
+            double shown = metric ? celsius : celsius * 1.8 + 32;
+            assertEquals(String.format(temperatureFormat, shown),
+                    formatter.formatTemperature(celsius));
+        }
+        // Twice, the second time from the table
+        assertEquals(formatter.formatTemperature(21.4), formatter.formatTemperature(21.4));
+        assertEquals(String.format(temperatureFormat, 1000.0),
+                formatter.formatTemperature(metric ? 1000 : (1000 - 32) / 1.8));
+
+        String windFormat = mContext.getString(
+                metric ? R.string.format_wind_kmh : R.string.format_wind_mph);
+        for (float kmh = 0; kmh <= 150; kmh += 0.3f) {
+            for (int i = 0; i < DIRECTIONS.length; i++) {
+                float degrees = i * 45;
+                float shown = metric ? kmh : .621371192237334f * kmh;
+                assertEquals(String.format(windFormat, shown, DIRECTIONS[i]),
+                        formatter.formatWind(kmh, degrees));
+            }
+        }
+    }
+
+    private void setUnits(int unitsId) {
+        getPreferences().edit()
+                .putString(mContext.getString(R.string.pref_units_key),
+                        mContext.getString(unitsId))
+                .commit();
+        // The listener only runs on the main thread, later
+        SettingsSnapshot.refresh(mContext);
+    }
+
+    private SharedPreferences getPreferences() {
+        return PreferenceManager.getDefaultSharedPreferences(mContext);
+    }
+}
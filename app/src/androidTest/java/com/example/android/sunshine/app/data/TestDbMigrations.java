@@ -0,0 +1,145 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.io.File;
+
+/*
+    Builds databases as older versions of the app left them, then opens them with the current
+    WeatherDbHelper to check that the upgrade keeps the cached forecast.
+ */
+public class TestDbMigrations extends AndroidTestCase {
+
+    private static final int DAYS_TO_INSERT = 14;
+    private static final long MILLISECONDS_IN_A_DAY = 1000 * 60 * 60 * 24;
+
+    // The schema exactly as version 2 of WeatherDbHelper created it.  Don't update these when
+    // the schema changes, they are what existing installs have on disk.
+    private static final String V2_CREATE_LOCATION_TABLE = "CREATE TABLE location (" +
+            "_id INTEGER PRIMARY KEY," +
+            "location_setting TEXT UNIQUE NOT NULL, " +
+            "city_name TEXT NOT NULL, " +
+            "coord_lat REAL NOT NULL, " +
+            "coord_long REAL NOT NULL  );";
+    private static final String V2_CREATE_WEATHER_TABLE = "CREATE TABLE weather (" +
+            "_id INTEGER PRIMARY KEY AUTOINCREMENT," +
+            "location_id INTEGER NOT NULL, " +
+            "date INTEGER NOT NULL, " +
+            "short_desc TEXT NOT NULL, " +
+            "weather_id INTEGER NOT NULL," +
+            "min REAL NOT NULL, " +
+            "max REAL NOT NULL, " +
+            "humidity REAL NOT NULL, " +
+            "pressure REAL NOT NULL, " +
+            "wind REAL NOT NULL, " +
+            "degrees REAL NOT NULL, " +
+            " FOREIGN KEY (location_id) REFERENCES location (_id),  " +
+            "UNIQUE (date, location_id) ON CONFLICT REPLACE);";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        super.tearDown();
+    }
+
+    public void testMigrationsCoverEveryVersion() {
+        int version = WeatherDbHelper.OLDEST_MIGRATABLE_VERSION;
+        for (WeatherDbHelper.Migration migration : WeatherDbHelper.MIGRATIONS) {
+            assertEquals("Error: migrations must go one version at a time, in order",
+                    version, migration.fromVersion);
+            version++;
+        }
+        assertEquals("Error: no migration reaches the current database version",
+                WeatherDbHelper.DATABASE_VERSION, version);
+    }
+
+    public void testUpgradeFromVersion2KeepsData() {
+        createPopulatedVersion2Database();
+
+        SQLiteDatabase db = new WeatherDbHelper(mContext).getReadableDatabase();
+        assertEquals(WeatherDbHelper.DATABASE_VERSION, db.getVersion());
+
+        assertEquals("Error: location rows lost in the upgrade",
+                1, DatabaseUtils.queryNumEntries(db, LocationEntry.TABLE_NAME));
+        assertEquals("Error: weather rows lost in the upgrade",
+                DAYS_TO_INSERT, DatabaseUtils.queryNumEntries(db, WeatherEntry.TABLE_NAME));
+
+        // The list query gets the same forecast it got before the update
+        WeatherProvider.QuerySpec spec = WeatherProvider.getQuerySpec(
+                WeatherEntry.buildWeatherLocationWithStartDate(
+                        TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE), null, null);
+        Cursor cursor = spec.query(db, null, WeatherEntry.COLUMN_DATE + " ASC");
+        assertEquals(DAYS_TO_INSERT, cursor.getCount());
+        cursor.moveToFirst();
+        for (int i = 0; i < DAYS_TO_INSERT; i++, cursor.moveToNext()) {
+            TestUtilities.validateCurrentRecord("testUpgradeFromVersion2KeepsData.  Error "
+                    + "validating WeatherEntry " + i, cursor, createVersion2WeatherValues(1, i));
+        }
+        cursor.close();
+
+        Cursor index = db.rawQuery(
+                "SELECT name FROM sqlite_master WHERE type = 'index' AND name = ?",
+                new String[]{WeatherDbHelper.WEATHER_LOCATION_DATE_INDEX});
+        assertTrue("Error: the upgrade did not add the (location_id, date) index",
+                index.moveToFirst());
+        index.close();
+        db.close();
+    }
+
+    public void testUpgradeFromVersion1StartsOver() {
+        SQLiteDatabase db = openRawDatabase();
+        db.execSQL("CREATE TABLE weather (_id INTEGER PRIMARY KEY, unused TEXT);");
+        db.execSQL("INSERT INTO weather (unused) VALUES ('old');");
+        db.setVersion(1);
+        db.close();
+
+        db = new WeatherDbHelper(mContext).getReadableDatabase();
+        assertEquals(WeatherDbHelper.DATABASE_VERSION, db.getVersion());
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, WeatherEntry.TABLE_NAME));
+        db.close();
+    }
+
+    SQLiteDatabase openRawDatabase() {
+        File path = mContext.getDatabasePath(WeatherDbHelper.DATABASE_NAME);
+        path.getParentFile().mkdirs();
+        return SQLiteDatabase.openOrCreateDatabase(path, null);
+    }
+
+    void createPopulatedVersion2Database() {
+        SQLiteDatabase db = openRawDatabase();
+        db.execSQL(V2_CREATE_LOCATION_TABLE);
+        db.execSQL(V2_CREATE_WEATHER_TABLE);
+
+        long locationRowId = db.insert(LocationEntry.TABLE_NAME, null,
+                TestUtilities.createNorthPoleLocationValues());
+        assertTrue(locationRowId != -1);
+        for (int i = 0; i < DAYS_TO_INSERT; i++) {
+            assertTrue(db.insert(WeatherEntry.TABLE_NAME, null,
+                    createVersion2WeatherValues(locationRowId, i)) != -1);
+        }
+        db.setVersion(2);
+        db.close();
+    }
+
+    static ContentValues createVersion2WeatherValues(long locationRowId, int day) {
+        ContentValues weatherValues = TestUtilities.createWeatherValues(locationRowId);
+        weatherValues.put(WeatherEntry.COLUMN_DATE, WeatherContract.normalizeDate(
+                TestUtilities.TEST_DATE + day * MILLISECONDS_IN_A_DAY));
+        weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, 75 + day);
+        weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, 65 - day);
+        return weatherValues;
+    }
+}
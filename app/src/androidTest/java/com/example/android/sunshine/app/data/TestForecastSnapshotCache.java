@@ -0,0 +1,210 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentUris;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.Bundle;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+/*
+    Checks that the WeatherProvider answers the forecast queries of the app from its in-memory
+    snapshots with exactly what SQLite would have returned, and that the fan-out after a sync
+    costs a single database query.
+ */
+public class TestForecastSnapshotCache extends AndroidTestCase {
+
+    private static final int DAYS = 14;
+    private static final String SORT_BY_DATE = WeatherEntry.COLUMN_DATE + " ASC";
+
+    // The projections of the list, the widgets, Muzei, the notification and the wearable
+    private static final String[] LIST_COLUMNS = {
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            LocationEntry.COLUMN_COORD_LAT,
+            LocationEntry.COLUMN_COORD_LONG
+    };
+    private static final String[] TODAY_WIDGET_COLUMNS = {
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP
+    };
+    private static final String[] DETAIL_WIDGET_COLUMNS = {
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP
+    };
+    private static final String[] MUZEI_COLUMNS = {
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_SHORT_DESC
+    };
+    private static final String[] NOTIFICATION_COLUMNS = {
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_SHORT_DESC
+    };
+    private static final String[] WEAR_COLUMNS = {
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherEntry.COLUMN_WEATHER_ID
+    };
+
+    private WeatherBatch mBatch;
+    private SQLiteDatabase mDb;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords();
+        Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        mBatch = TestWeatherBatch.createBatch(ContentUris.parseId(locationUri), DAYS);
+        assertEquals(DAYS, mBatch.writeTo(mContext.getContentResolver()));
+        mDb = new WeatherDbHelper(mContext).getReadableDatabase();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDb.close();
+        deleteAllRecords();
+        super.tearDown();
+    }
+
+    void deleteAllRecords() {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    public void testFanOutAfterSyncQueriesOnce() {
+        long[] before = getStats();
+        queryLikeEveryConsumer();
+        long[] after = getStats();
+        assertEquals("Error: the consumers should share a single database query",
+                1, after[1] - before[1]);
+        assertEquals("Error: every consumer but the first should be served from memory",
+                5, after[0] - before[0]);
+
+        // A sync that changes a day drops the snapshot, the next consumer reads it again
+        mBatch.maxTemps[0] = 100;
+        assertEquals(1, mBatch.writeTo(mContext.getContentResolver()));
+        queryLikeEveryConsumer();
+        long[] afterWrite = getStats();
+        assertEquals(1, afterWrite[1] - after[1]);
+        assertEquals(5, afterWrite[0] - after[0]);
+
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherEntry.buildWeatherLocationWithDate(
+                        TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE),
+                NOTIFICATION_COLUMNS, null, null, null);
+        assertTrue(cursor.moveToFirst());
+        assertEquals("Error: the snapshot still holds the old value", 100.0, cursor.getDouble(1),
+                0);
+        cursor.close();
+    }
+
+    public void testUnsupportedQueriesGoToSQLite() {
+        long[] before = getStats();
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherEntry.buildWeatherLocation(TestUtilities.TEST_LOCATION),
+                null, null, null, null);
+        assertEquals(DAYS, cursor.getCount());
+        cursor.close();
+        cursor = mContext.getContentResolver().query(
+                WeatherEntry.buildWeatherLocation(TestUtilities.TEST_LOCATION),
+                MUZEI_COLUMNS, null, null, WeatherEntry.COLUMN_DATE + " DESC");
+        assertEquals(DAYS, cursor.getCount());
+        cursor.close();
+        long[] after = getStats();
+        assertEquals(before[0], after[0]);
+        assertEquals(before[1], after[1]);
+    }
+
+    public void testSnapshotMatchesSQLite() {
+        Uri listUri = WeatherEntry.buildWeatherLocationWithStartDate(TestUtilities.TEST_LOCATION,
+                TestUtilities.TEST_DATE + 3 * 24 * 60 * 60 * 1000L);
+        checkSameAsSQLite(listUri, LIST_COLUMNS, SORT_BY_DATE);
+        checkSameAsSQLite(WeatherEntry.buildWeatherLocation(TestUtilities.TEST_LOCATION),
+                DETAIL_WIDGET_COLUMNS, SORT_BY_DATE);
+        checkSameAsSQLite(WeatherEntry.buildWeatherLocationWithDate(TestUtilities.TEST_LOCATION,
+                TestUtilities.TEST_DATE), NOTIFICATION_COLUMNS, null);
+        checkSameAsSQLite(WeatherEntry.buildWearableWeatherLocation(TestUtilities.TEST_LOCATION,
+                TestUtilities.TEST_DATE), WEAR_COLUMNS, SORT_BY_DATE);
+        // A location nothing is stored for
+        checkSameAsSQLite(WeatherEntry.buildWeatherLocationWithStartDate("00000",
+                TestUtilities.TEST_DATE), LIST_COLUMNS, SORT_BY_DATE);
+    }
+
+    void queryLikeEveryConsumer() {
+        Uri forecastUri = WeatherEntry.buildWeatherLocationWithStartDate(
+                TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE);
+        Uri todayUri = WeatherEntry.buildWeatherLocationWithDate(
+                TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE);
+        Uri wearUri = WeatherEntry.buildWearableWeatherLocation(
+                TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE);
+        assertEquals(DAYS, queryCount(forecastUri, LIST_COLUMNS, SORT_BY_DATE));
+        assertEquals(DAYS, queryCount(forecastUri, TODAY_WIDGET_COLUMNS, SORT_BY_DATE));
+        assertEquals(DAYS, queryCount(forecastUri, DETAIL_WIDGET_COLUMNS, SORT_BY_DATE));
+        assertEquals(DAYS, queryCount(forecastUri, MUZEI_COLUMNS, SORT_BY_DATE));
+        assertEquals(1, queryCount(todayUri, NOTIFICATION_COLUMNS, null));
+        assertEquals(1, queryCount(wearUri, WEAR_COLUMNS, SORT_BY_DATE));
+    }
+
+    int queryCount(Uri uri, String[] projection, String sortOrder) {
+        Cursor cursor = mContext.getContentResolver().query(uri, projection, null, null,
+                sortOrder);
+        int count = cursor.getCount();
+        cursor.close();
+        return count;
+    }
+
+    void checkSameAsSQLite(Uri uri, String[] projection, String sortOrder) {
+        Cursor expected = WeatherProvider.getQuerySpec(uri, null, null)
+                .query(mDb, projection, sortOrder);
+        Cursor actual = mContext.getContentResolver().query(uri, projection, null, null,
+                sortOrder);
+        assertEquals("Error: wrong row count for " + uri, expected.getCount(), actual.getCount());
+        for (int column = 0; column < projection.length; column++) {
+            assertEquals("Error: wrong column name for " + uri,
+                    expected.getColumnName(column), actual.getColumnName(column));
+        }
+        while (expected.moveToNext()) {
+            assertTrue(actual.moveToNext());
+            for (int column = 0; column < projection.length; column++) {
+                String error = "Error: wrong " + projection[column] + " for " + uri;
+                assertEquals(error, expected.getType(column), actual.getType(column));
+                if (expected.getType(column) == Cursor.FIELD_TYPE_FLOAT) {
+                    assertEquals(error, expected.getDouble(column), actual.getDouble(column), 0);
+                } else {
+                    assertEquals(error, expected.getString(column), actual.getString(column));
+                }
+            }
+        }
+        expected.close();
+        actual.close();
+    }
+
+    // {hits, misses}
+    long[] getStats() {
+        Bundle stats = mContext.getContentResolver().call(WeatherEntry.CONTENT_URI,
+                WeatherProvider.METHOD_GET_SNAPSHOT_STATS, null, null);
+        return new long[]{stats.getLong(WeatherProvider.KEY_SNAPSHOT_HITS),
+                stats.getLong(WeatherProvider.KEY_SNAPSHOT_MISSES)};
+    }
+}
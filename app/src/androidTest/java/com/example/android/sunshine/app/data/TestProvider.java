@@ -512,4 +512,53 @@ public class TestProvider extends AndroidTestCase {
         }
         cursor.close();
     }
+
+    /*
+        Bulk inserting the same forecast twice must not rewrite it: the second call reports no
+        changes and the rows keep their _ids.  Changing a single day only touches that row.
+     */
+    public void testBulkInsertOnlyWritesChanges() {
+        ContentValues testValues = TestUtilities.createNorthPoleLocationValues();
+        Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, testValues);
+        long locationRowId = ContentUris.parseId(locationUri);
+
+        int insertCount = mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI,
+                createBulkInsertWeatherValues(locationRowId));
+        assertEquals(BULK_INSERT_RECORDS_TO_INSERT, insertCount);
+        long[] ids = readWeatherIds();
+
+        int unchangedCount = mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI,
+                createBulkInsertWeatherValues(locationRowId));
+        assertEquals("Error: an identical bulk insert should not change any rows", 0, unchangedCount);
+
+        ContentValues[] changedValues = createBulkInsertWeatherValues(locationRowId);
+        changedValues[3].put(WeatherEntry.COLUMN_MAX_TEMP, 100);
+        int changedCount = mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI,
+                changedValues);
+        assertEquals("Error: only the modified row should be changed", 1, changedCount);
+
+        long[] idsAfter = readWeatherIds();
+        assertEquals(ids.length, idsAfter.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals("Error: weather row " + i + " changed its _id", ids[i], idsAfter[i]);
+        }
+
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null, null,
+                null, WeatherEntry.COLUMN_DATE + " ASC");
+        cursor.moveToPosition(3);
+        TestUtilities.validateCurrentRecord("testBulkInsertOnlyWritesChanges.  Error validating "
+                + "changed WeatherEntry", cursor, changedValues[3]);
+        cursor.close();
+    }
+
+    private long[] readWeatherIds() {
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI,
+                new String[]{WeatherEntry._ID}, null, null, WeatherEntry.COLUMN_DATE + " ASC");
+        long[] ids = new long[cursor.getCount()];
+        for (int i = 0; cursor.moveToNext(); i++) {
+            ids[i] = cursor.getLong(0);
+        }
+        cursor.close();
+        return ids;
+    }
 }
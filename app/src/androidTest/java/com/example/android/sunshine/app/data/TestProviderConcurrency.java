@@ -0,0 +1,127 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentUris;
+import android.database.Cursor;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+    Hammers the WeatherProvider with reads from several threads while the test thread keeps
+    writing forecasts the way the sync adapter does, and reports the read latencies.
+ */
+public class TestProviderConcurrency extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestProviderConcurrency.class.getSimpleName();
+
+    private static final int READER_THREADS = 4;
+    private static final int SYNCS = 50;
+    // many more days than a real sync, so each write transaction takes a while
+    private static final int ROWS_PER_SYNC = 500;
+    private static final int MAX_SAMPLES_PER_READER = 100000;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords();
+        super.tearDown();
+    }
+
+    void deleteAllRecords() {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    public void testReadsDuringSync() throws Exception {
+        Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        final long locationRowId = ContentUris.parseId(locationUri);
+        WeatherBatch batch = TestWeatherBatch.createBatch(locationRowId, ROWS_PER_SYNC);
+        batch.writeTo(mContext.getContentResolver());
+
+        final Uri forecastUri = WeatherEntry.buildWeatherLocationWithStartDate(
+                TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE);
+        final AtomicBoolean syncing = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch readersDone = new CountDownLatch(READER_THREADS);
+        final long[][] latencies = new long[READER_THREADS][MAX_SAMPLES_PER_READER];
+        final int[] sampleCounts = new int[READER_THREADS];
+
+        for (int t = 0; t < READER_THREADS; t++) {
+            final int reader = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int samples = 0;
+                        while (syncing.get() && samples < MAX_SAMPLES_PER_READER) {
+                            long start = System.nanoTime();
+                            Cursor cursor = mContext.getContentResolver().query(forecastUri,
+                                    null, null, null, WeatherEntry.COLUMN_DATE + " ASC");
+                            // fill the window, as a Loader would
+                            cursor.getCount();
+                            cursor.close();
+                            latencies[reader][samples++] = System.nanoTime() - start;
+                        }
+                        sampleCounts[reader] = samples;
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        readersDone.countDown();
+                    }
+                }
+            }, "reader-" + t).start();
+        }
+
+        long syncStart = System.nanoTime();
+        for (int i = 0; i < SYNCS; i++) {
+            // make every row differ from what's stored so each sync really writes
+            for (int row = 0; row < batch.size; row++) {
+                batch.maxTemps[row] += 1;
+            }
+            assertEquals(ROWS_PER_SYNC, batch.writeTo(mContext.getContentResolver()));
+        }
+        long syncNanos = System.nanoTime() - syncStart;
+        syncing.set(false);
+        readersDone.await();
+
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        int total = 0;
+        for (int count : sampleCounts) {
+            total += count;
+        }
+        assertTrue("Error: no reads completed during the syncs", total > 0);
+        long[] all = new long[total];
+        int offset = 0;
+        for (int t = 0; t < READER_THREADS; t++) {
+            System.arraycopy(latencies[t], 0, all, offset, sampleCounts[t]);
+            offset += sampleCounts[t];
+        }
+        Arrays.sort(all);
+
+        Log.i(LOG_TAG, String.format("%d syncs in %.1f ms, %d reads: p50 %.2f ms, p99 %.2f ms, "
+                        + "max %.2f ms", SYNCS, syncNanos / 1e6, total,
+                percentile(all, 50) / 1e6, percentile(all, 99) / 1e6, all[total - 1] / 1e6));
+    }
+
+    static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.util.HashSet;
+
+/*
+    Runs EXPLAIN QUERY PLAN on the query the WeatherProvider builds for each of its URIs, with
+    the selections the app actually uses, and fails unless every table the query reads is
+    looked up through an index.
+ */
+public class TestQueryPlans extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestQueryPlans.class.getSimpleName();
+
+    private static final String SORT_BY_DATE = WeatherEntry.COLUMN_DATE + " ASC";
+    private static final String[] WEATHER_AND_LOCATION =
+            {WeatherEntry.TABLE_NAME, LocationEntry.TABLE_NAME};
+
+    private SQLiteDatabase mDb;
+    private final HashSet<Integer> mCheckedRoutes = new HashSet<Integer>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        mDb = new WeatherDbHelper(mContext).getWritableDatabase();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDb.close();
+        super.tearDown();
+    }
+
+    public void testIndexExists() {
+        Cursor c = mDb.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND name = ?",
+                new String[]{WeatherDbHelper.WEATHER_LOCATION_DATE_INDEX});
+        assertTrue("Error: the (location_id, date) index was not created", c.moveToFirst());
+        c.close();
+    }
+
+    public void testNoRouteScansATable() {
+        // The list, widgets, Muzei and the notification
+        checkPlan(WeatherProvider.WEATHER_WITH_LOCATION,
+                WeatherEntry.buildWeatherLocationWithStartDate(
+                        TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE),
+                null, null, SORT_BY_DATE, WEATHER_AND_LOCATION);
+        checkPlan(WeatherProvider.WEATHER_WITH_LOCATION,
+                WeatherEntry.buildWeatherLocation(TestUtilities.TEST_LOCATION),
+                null, null, SORT_BY_DATE, WEATHER_AND_LOCATION);
+        // The detail view
+        checkPlan(WeatherProvider.WEATHER_WITH_LOCATION_AND_DATE,
+                WeatherEntry.buildWeatherLocationWithDate(
+                        TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE),
+                null, null, null, WEATHER_AND_LOCATION);
+        // The wearable
+        checkPlan(WeatherProvider.WEATHER_WITH_LOCATION_WEARABLE,
+                WeatherEntry.buildWearableWeatherLocation(
+                        TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE),
+                null, null, SORT_BY_DATE, WEATHER_AND_LOCATION);
+        // The sync adapter's clean up of old days
+        checkPlan(WeatherProvider.WEATHER,
+                WeatherEntry.CONTENT_URI,
+                WeatherEntry.COLUMN_DATE + " <= ?",
+                new String[]{Long.toString(TestUtilities.TEST_DATE)},
+                null, WeatherEntry.TABLE_NAME);
+        // The sync adapter's location lookup
+        checkPlan(WeatherProvider.LOCATION,
+                LocationEntry.CONTENT_URI,
+                LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[]{TestUtilities.TEST_LOCATION},
+                null, LocationEntry.TABLE_NAME);
+
+        HashSet<Integer> allRoutes = new HashSet<Integer>();
+        allRoutes.add(WeatherProvider.WEATHER);
+        allRoutes.add(WeatherProvider.WEATHER_WITH_LOCATION);
+        allRoutes.add(WeatherProvider.WEATHER_WITH_LOCATION_AND_DATE);
+        allRoutes.add(WeatherProvider.WEATHER_WITH_LOCATION_WEARABLE);
+        allRoutes.add(WeatherProvider.LOCATION);
+        assertEquals("Error: not every WeatherProvider route has its query plan checked",
+                allRoutes, mCheckedRoutes);
+    }
+
+    void checkPlan(int expectedRoute, Uri uri, String selection, String[] selectionArgs,
+                   String sortOrder, String... tables) {
+        UriMatcher matcher = WeatherProvider.buildUriMatcher();
+        assertEquals("Error: " + uri + " does not match the expected route",
+                expectedRoute, matcher.match(uri));
+        mCheckedRoutes.add(expectedRoute);
+
+        WeatherProvider.QuerySpec spec = WeatherProvider.getQuerySpec(uri, selection, selectionArgs);
+        String sql = spec.buildQuery(null, sortOrder);
+        Cursor plan = mDb.rawQuery("EXPLAIN QUERY PLAN " + sql, spec.selectionArgs);
+        int detailIndex = plan.getColumnIndex("detail");
+        assertTrue("Error: no query plan for " + sql, plan.moveToFirst());
+        HashSet<String> searched = new HashSet<String>();
+        do {
+            String detail = plan.getString(detailIndex);
+            Log.d(LOG_TAG, uri + ": " + detail);
+            // Older SQLite says "SCAN TABLE weather", newer just "SCAN weather".  Any SCAN reads
+            // every row, even "SCAN ... USING (COVERING) INDEX", which only walks the index in
+            // order; only a SEARCH uses the index to find the rows it needs.
+            String step = detail.replace(" TABLE ", " ") + " ";
+            for (String table : tables) {
+                assertFalse("Error: " + uri + " scans the whole " + table + " table (" + detail +
+                        ") for " + sql, step.startsWith("SCAN " + table + " "));
+                if (step.startsWith("SEARCH " + table + " ")) {
+                    searched.add(table);
+                }
+            }
+        } while (plan.moveToNext());
+        plan.close();
+
+        for (String table : tables) {
+            assertTrue("Error: " + uri + " does not search the " + table + " table through an " +
+                    "index for " + sql, searched.contains(table));
+        }
+    }
+}
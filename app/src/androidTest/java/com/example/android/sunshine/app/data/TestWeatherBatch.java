@@ -0,0 +1,171 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+/*
+    Tests the compiled-statement batch write path of the WeatherProvider, and benchmarks it
+    against bulkInsert with ContentValues.
+ */
+public class TestWeatherBatch extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestWeatherBatch.class.getSimpleName();
+
+    private static final long MILLISECONDS_IN_A_DAY = 1000 * 60 * 60 * 24;
+    private static final int[] BENCHMARK_ROW_COUNTS = {14, 1000, 100000};
+    private static final int MAX_DAYS_PER_LOCATION = 1000;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords();
+        super.tearDown();
+    }
+
+    void deleteAllRecords() {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    long insertLocation() {
+        Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        long locationRowId = ContentUris.parseId(locationUri);
+        assertTrue(locationRowId != -1);
+        return locationRowId;
+    }
+
+    static WeatherBatch createBatch(long locationRowId, int rows) {
+        WeatherBatch batch = new WeatherBatch(rows);
+        batch.locationId = locationRowId;
+        long currentTestDate = TestUtilities.TEST_DATE;
+        for (int i = 0; i < rows; i++, currentTestDate += MILLISECONDS_IN_A_DAY) {
+            int row = batch.addRow();
+            batch.dates[row] = currentTestDate;
+            batch.degrees[row] = 1.1;
+            batch.humidities[row] = 1.2 + 0.01 * (float) i;
+            batch.pressures[row] = 1.3 - 0.01 * (float) i;
+            batch.maxTemps[row] = 75 + i;
+            batch.minTemps[row] = 65 - i;
+            batch.shortDescs[row] = "Asteroids";
+            batch.windSpeeds[row] = 5.5 + 0.2 * (float) i;
+            batch.weatherIds[row] = 321;
+        }
+        return batch;
+    }
+
+    static ContentValues[] toContentValues(WeatherBatch batch) {
+        ContentValues[] values = new ContentValues[batch.size];
+        for (int i = 0; i < batch.size; i++) {
+            ContentValues weatherValues = new ContentValues();
+            weatherValues.put(WeatherEntry.COLUMN_LOC_KEY, batch.locationId);
+            weatherValues.put(WeatherEntry.COLUMN_DATE, batch.dates[i]);
+            weatherValues.put(WeatherEntry.COLUMN_DEGREES, batch.degrees[i]);
+            weatherValues.put(WeatherEntry.COLUMN_HUMIDITY, batch.humidities[i]);
+            weatherValues.put(WeatherEntry.COLUMN_PRESSURE, batch.pressures[i]);
+            weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, batch.maxTemps[i]);
+            weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, batch.minTemps[i]);
+            weatherValues.put(WeatherEntry.COLUMN_SHORT_DESC, batch.shortDescs[i]);
+            weatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, batch.windSpeeds[i]);
+            weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, batch.weatherIds[i]);
+            values[i] = weatherValues;
+        }
+        return values;
+    }
+
+    public void testBatchWrite() {
+        long locationRowId = insertLocation();
+        WeatherBatch batch = createBatch(locationRowId, 10);
+
+        TestUtilities.TestContentObserver weatherObserver = TestUtilities.getTestContentObserver();
+        mContext.getContentResolver().registerContentObserver(WeatherEntry.CONTENT_URI, true, weatherObserver);
+
+        int writeCount = batch.writeTo(mContext.getContentResolver());
+
+        weatherObserver.waitForNotificationOrFail();
+        mContext.getContentResolver().unregisterContentObserver(weatherObserver);
+        assertEquals(10, writeCount);
+
+        // The batch must store exactly what bulkInsert would have stored
+        ContentValues[] expectedValues = toContentValues(batch);
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null, null,
+                null, WeatherEntry.COLUMN_DATE + " ASC");
+        assertEquals(10, cursor.getCount());
+        cursor.moveToFirst();
+        for (int i = 0; i < 10; i++, cursor.moveToNext()) {
+            expectedValues[i].put(WeatherEntry.COLUMN_DATE,
+                    WeatherContract.normalizeDate(batch.dates[i]));
+            TestUtilities.validateCurrentRecord("testBatchWrite.  Error validating WeatherEntry " + i,
+                    cursor, expectedValues[i]);
+        }
+        cursor.close();
+
+        assertEquals("Error: an identical batch should not change any rows",
+                0, batch.writeTo(mContext.getContentResolver()));
+
+        batch.maxTemps[4] = 100;
+        assertEquals("Error: only the modified row should be changed",
+                1, batch.writeTo(mContext.getContentResolver()));
+    }
+
+    /*
+        Not a correctness test: logs rows per second for bulkInsert and the batch writer so the
+        numbers can be compared on a real device.  Every run writes new rows into an empty table.
+        Large runs are split over several locations so the dates stay within a few years.
+     */
+    public void testBenchmarkBatchWrite() {
+        for (int rows : BENCHMARK_ROW_COUNTS) {
+            WeatherBatch[] batches = createBenchmarkBatches(rows);
+
+            // ContentValues are built inside the timed section, as the sync adapter used to
+            long start = System.nanoTime();
+            int inserted = 0;
+            for (WeatherBatch batch : batches) {
+                inserted += mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI,
+                        toContentValues(batch));
+            }
+            long bulkInsertNanos = System.nanoTime() - start;
+            assertEquals(rows, inserted);
+            mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+
+            start = System.nanoTime();
+            int written = 0;
+            for (WeatherBatch batch : batches) {
+                written += batch.writeTo(mContext.getContentResolver());
+            }
+            long batchNanos = System.nanoTime() - start;
+            assertEquals(rows, written);
+            deleteAllRecords();
+
+            Log.i(LOG_TAG, String.format("%d rows: bulkInsert %.0f rows/s, batch %.0f rows/s",
+                    rows, rows * 1e9 / bulkInsertNanos, rows * 1e9 / batchNanos));
+        }
+    }
+
+    WeatherBatch[] createBenchmarkBatches(int rows) {
+        WeatherBatch[] batches = new WeatherBatch[(rows + MAX_DAYS_PER_LOCATION - 1)
+                / MAX_DAYS_PER_LOCATION];
+        for (int i = 0; i < batches.length; i++) {
+            ContentValues locationValues = TestUtilities.createNorthPoleLocationValues();
+            locationValues.put(LocationEntry.COLUMN_LOCATION_SETTING,
+                    TestUtilities.TEST_LOCATION + "-" + i);
+            long locationRowId = ContentUris.parseId(mContext.getContentResolver()
+                    .insert(LocationEntry.CONTENT_URI, locationValues));
+            batches[i] = createBatch(locationRowId,
+                    Math.min(MAX_DAYS_PER_LOCATION, rows - i * MAX_DAYS_PER_LOCATION));
+        }
+        return batches;
+    }
+}
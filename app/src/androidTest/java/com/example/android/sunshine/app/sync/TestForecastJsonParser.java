@@ -0,0 +1,226 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentValues;
+import android.os.Debug;
+import android.test.InstrumentationTestCase;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherBatch;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.util.Vector;
+
+/*
+    Checks the streaming forecast parser against the JSONObject based parsing the sync adapter
+    used to do, and benchmarks the two against the recorded payloads in the test assets.
+ */
+public class TestForecastJsonParser extends InstrumentationTestCase {
+
+    public static final String LOG_TAG = TestForecastJsonParser.class.getSimpleName();
+
+    static final String FORECAST_ASSET = "forecast_daily_14.json";
+    static final String NOT_FOUND_ASSET = "forecast_not_found.json";
+
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int BENCHMARK_ITERATIONS = 500;
+    // The reference parse needs a location row id, any will do
+    private static final long LOCATION_ID = 1;
+
+    byte[] readAsset(String name) throws IOException {
+        InputStream in = getInstrumentation().getContext().getAssets().open(name);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    public void testParseMatchesJsonObject() throws Exception {
+        byte[] payload = readAsset(FORECAST_ASSET);
+
+        ForecastJsonParser.Forecast streamed =
+                ForecastJsonParser.parse(new ByteArrayInputStream(payload));
+        JsonObjectForecast dom = parseWithJsonObject(new ByteArrayInputStream(payload));
+
+        assertEquals(HttpURLConnection.HTTP_OK, streamed.messageCode);
+        assertEquals(dom.cityName, streamed.cityName);
+        assertEquals(dom.cityLatitude, streamed.cityLatitude);
+        assertEquals(dom.cityLongitude, streamed.cityLongitude);
+        assertEquals(14, streamed.days.size);
+        assertEquals(dom.days.size(), streamed.days.size);
+
+        WeatherBatch actual = streamed.days;
+        for (int i = 0; i < dom.days.size(); i++) {
+            ContentValues expected = dom.days.get(i);
+            String error = "Error: day " + i + " differs from the JSONObject parse";
+            assertEquals(error, expected.getAsDouble(WeatherEntry.COLUMN_PRESSURE),
+                    actual.pressures[i], 0);
+            // The JSON humidity is an int, the batch keeps it as a double like the column
+            assertEquals(error, expected.getAsDouble(WeatherEntry.COLUMN_HUMIDITY),
+                    actual.humidities[i], 0);
+            assertEquals(error, expected.getAsDouble(WeatherEntry.COLUMN_WIND_SPEED),
+                    actual.windSpeeds[i], 0);
+            assertEquals(error, expected.getAsDouble(WeatherEntry.COLUMN_DEGREES),
+                    actual.degrees[i], 0);
+            assertEquals(error, expected.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP),
+                    actual.maxTemps[i], 0);
+            assertEquals(error, expected.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP),
+                    actual.minTemps[i], 0);
+            assertEquals(error, expected.getAsString(WeatherEntry.COLUMN_SHORT_DESC),
+                    actual.shortDescs[i]);
+            assertEquals(error, (int) expected.getAsInteger(WeatherEntry.COLUMN_WEATHER_ID),
+                    actual.weatherIds[i]);
+        }
+    }
+
+    public void testParseErrorCode() throws Exception {
+        ForecastJsonParser.Forecast forecast = ForecastJsonParser.parse(
+                new ByteArrayInputStream(readAsset(NOT_FOUND_ASSET)));
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, forecast.messageCode);
+    }
+
+    public void testParseIncompleteForecast() throws Exception {
+        String json = "{\"cod\":\"200\",\"list\":[{\"pressure\":1000.0}]}";
+        try {
+            ForecastJsonParser.parse(new ByteArrayInputStream(json.getBytes("UTF-8")));
+            fail("Error: a forecast without a city should not parse");
+        } catch (JSONException expected) {
+        }
+    }
+
+    /*
+        Not a correctness test: logs time and allocations per parse for both paths so the
+        numbers can be compared on a real device.
+     */
+    public void testBenchmarkParse() throws Exception {
+        byte[] payload = readAsset(FORECAST_ASSET);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            parseWithJsonObject(new ByteArrayInputStream(payload));
+            ForecastJsonParser.parse(new ByteArrayInputStream(payload));
+        }
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocSize();
+            long start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                parseWithJsonObject(new ByteArrayInputStream(payload));
+            }
+            long domNanos = System.nanoTime() - start;
+            long domBytes = Debug.getThreadAllocSize();
+
+            Debug.resetThreadAllocSize();
+            start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                ForecastJsonParser.parse(new ByteArrayInputStream(payload));
+            }
+            long streamNanos = System.nanoTime() - start;
+            long streamBytes = Debug.getThreadAllocSize();
+
+            Log.i(LOG_TAG, String.format("JSONObject: %.1f us/parse, %d bytes/parse",
+                    domNanos / 1000.0 / BENCHMARK_ITERATIONS, domBytes / BENCHMARK_ITERATIONS));
+            Log.i(LOG_TAG, String.format("JsonReader: %.1f us/parse, %d bytes/parse",
+                    streamNanos / 1000.0 / BENCHMARK_ITERATIONS, streamBytes / BENCHMARK_ITERATIONS));
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    /*
+        What the JSONObject parse gives: the city, and the days as the ContentValues the sync
+        adapter used to bulk insert.
+     */
+    static class JsonObjectForecast {
+        int messageCode = HttpURLConnection.HTTP_OK;
+        String cityName;
+        double cityLatitude;
+        double cityLongitude;
+        Vector<ContentValues> days;
+    }
+
+    /*
+        The way SunshineSyncAdapter used to read the forecast: the whole stream into a String,
+        then a JSONObject tree, then one ContentValues per day.
+     */
+    static JsonObjectForecast parseWithJsonObject(InputStream inputStream)
+            throws IOException, JSONException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+        StringBuffer buffer = new StringBuffer();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            buffer.append(line + "\n");
+        }
+
+        JsonObjectForecast forecast = new JsonObjectForecast();
+        JSONObject forecastJson = new JSONObject(buffer.toString());
+        if (forecastJson.has("cod")) {
+            forecast.messageCode = forecastJson.getInt("cod");
+            if (forecast.messageCode != HttpURLConnection.HTTP_OK) {
+                return forecast;
+            }
+        }
+
+        JSONArray weatherArray = forecastJson.getJSONArray("list");
+        JSONObject cityJson = forecastJson.getJSONObject("city");
+        forecast.cityName = cityJson.getString("name");
+        JSONObject cityCoord = cityJson.getJSONObject("coord");
+        forecast.cityLatitude = cityCoord.getDouble("lat");
+        forecast.cityLongitude = cityCoord.getDouble("lon");
+
+        Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
+        Time dayTime = new Time();
+        dayTime.setToNow();
+        int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
+        dayTime = new Time();
+        for (int i = 0; i < weatherArray.length(); i++) {
+            JSONObject dayForecast = weatherArray.getJSONObject(i);
+            long dateTime = dayTime.setJulianDay(julianStartDay + i);
+            double pressure = dayForecast.getDouble("pressure");
+            int humidity = dayForecast.getInt("humidity");
+            double windSpeed = dayForecast.getDouble("speed");
+            double windDirection = dayForecast.getDouble("deg");
+
+            JSONObject weatherObject = dayForecast.getJSONArray("weather").getJSONObject(0);
+            String description = weatherObject.getString("main");
+            int weatherId = weatherObject.getInt("id");
+
+            JSONObject temperatureObject = dayForecast.getJSONObject("temp");
+            double high = temperatureObject.getDouble("max");
+            double low = temperatureObject.getDouble("min");
+
+            ContentValues weatherValues = new ContentValues();
+            weatherValues.put(WeatherEntry.COLUMN_LOC_KEY, LOCATION_ID);
+            weatherValues.put(WeatherEntry.COLUMN_DATE, dateTime);
+            weatherValues.put(WeatherEntry.COLUMN_HUMIDITY, humidity);
+            weatherValues.put(WeatherEntry.COLUMN_PRESSURE, pressure);
+            weatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
+            weatherValues.put(WeatherEntry.COLUMN_DEGREES, windDirection);
+            weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, high);
+            weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, low);
+            weatherValues.put(WeatherEntry.COLUMN_SHORT_DESC, description);
+            weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+            cVVector.add(weatherValues);
+        }
+        forecast.days = cVVector;
+        return forecast;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.test.AndroidTestCase;
+
+import java.util.List;
+
+/*
+    Checks that a burst of data changes reaches the sinks once, and that the device is kept
+    awake until it did.  Time is a fake clock and the sinks are fakes, so nothing real updates.
+ */
+public class TestWeatherUpdateDispatcher extends AndroidTestCase {
+
+    private static final int BURST = 5;
+
+    private long mNow = 1000;
+    private int mUpdates;
+    private PowerManager.WakeLock mWakeLock;
+    private WeatherUpdateDispatcher mDispatcher;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Messages to the test thread's looper are never run, the test dispatches itself
+        if (Looper.myLooper() == null) {
+            Looper.prepare();
+        }
+        PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        mWakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "test");
+        mDispatcher = new WeatherUpdateDispatcher(mContext, Looper.myLooper(),
+                new WeatherUpdateDispatcher.Clock() {
+                    @Override
+                    public long uptimeMillis() {
+                        return mNow;
+                    }
+                }, mWakeLock);
+        mDispatcher.addSink(new WeatherUpdateDispatcher.Sink() {
+            @Override
+            public String getName() {
+                return "fake";
+            }
+
+            @Override
+            public void onWeatherUpdated(Context context, TodayWeather today) {
+                mUpdates++;
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mWakeLock.isHeld()) {
+            mWakeLock.release();
+        }
+        super.tearDown();
+    }
+
+    public void testBurstIsCoalesced() {
+        for (int i = 0; i < BURST; i++) {
+            mDispatcher.onDataChanged();
+            mNow += WeatherUpdateDispatcher.COALESCE_WINDOW_MS / 4;
+            mDispatcher.dispatchIfDue();
+        }
+        assertEquals("Error: dispatched before the changes settled", 0, mUpdates);
+        assertTrue("Error: the device may sleep before the dispatch", mWakeLock.isHeld());
+
+        mNow += WeatherUpdateDispatcher.COALESCE_WINDOW_MS;
+        mDispatcher.dispatchIfDue();
+        assertEquals("Error: a burst of changes should be dispatched once", 1, mUpdates);
+        assertEquals(1, mDispatcher.getDispatchCount());
+        assertFalse("Error: the wake lock outlived the dispatch", mWakeLock.isHeld());
+
+        // Nothing pending, nothing dispatched
+        mNow += WeatherUpdateDispatcher.MAX_DELAY_MS;
+        mDispatcher.dispatchIfDue();
+        assertEquals(1, mUpdates);
+
+        List<WeatherUpdateDispatcher.SinkStats> stats = mDispatcher.getSinkStats();
+        assertEquals(1, stats.size());
+        assertEquals("fake", stats.get(0).name);
+        assertEquals(1, stats.get(0).dispatchCount);
+    }
+
+    public void testSteadyChangesAreNotHeldBackForever() {
+        long start = mNow;
+        while (mUpdates == 0) {
+            mDispatcher.onDataChanged();
+            mNow += WeatherUpdateDispatcher.COALESCE_WINDOW_MS / 2;
+            mDispatcher.dispatchIfDue();
+            assertTrue("Error: changes held back past the maximum delay",
+                    mNow - start <= WeatherUpdateDispatcher.MAX_DELAY_MS
+                            + WeatherUpdateDispatcher.COALESCE_WINDOW_MS);
+        }
+        assertEquals(1, mUpdates);
+    }
+}
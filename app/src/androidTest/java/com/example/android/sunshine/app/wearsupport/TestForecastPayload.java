@@ -0,0 +1,93 @@
+package com.example.android.sunshine.app.wearsupport;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.constants.AppConstants;
+import com.google.android.gms.wearable.DataMap;
+
+import java.io.ByteArrayOutputStream;
+
+/*
+    Checks that the forecast sent to the watch survives encoding, and that a week of it is
+    smaller than the single day the watch used to get.
+ */
+public class TestForecastPayload extends AndroidTestCase {
+
+    private static final String LOG_TAG = TestForecastPayload.class.getSimpleName();
+
+    private static final int FIRST_JULIAN_DAY = 2457300;
+
+    public void testRoundTrip() {
+        ForecastPayload payload = createWeek(false);
+        byte[] bytes = payload.encode();
+        assertEquals(ForecastPayload.HEADER_BYTES
+                + ForecastPayload.MAX_DAYS * ForecastPayload.DAY_BYTES, bytes.length);
+
+        ForecastPayload decoded = ForecastPayload.decode(bytes);
+        assertNotNull(decoded);
+        assertEquals(payload.metric, decoded.metric);
+        assertEquals(payload.days.length, decoded.days.length);
+        for (int i = 0; i < payload.days.length; i++) {
+            ForecastPayload.Day expected = payload.days[i];
+            ForecastPayload.Day actual = decoded.days[i];
+            assertEquals(expected.julianDay, actual.julianDay);
+            assertEquals(expected.weatherId, actual.weatherId);
+            assertEquals(expected.iconIndex, actual.iconIndex);
+            // Temperatures and wind keep a tenth
+            assertEquals(expected.high, actual.high, 0.05);
+            assertEquals(expected.low, actual.low, 0.05);
+            assertEquals(expected.humidity, actual.humidity);
+            assertEquals(expected.windSpeed, actual.windSpeed, 0.05);
+            assertEquals(expected.windDegrees, actual.windDegrees);
+        }
+    }
+
+    public void testDecodeRejectsOtherVersionsAndTruncation() {
+        byte[] bytes = createWeek(true).encode();
+        assertTrue(ForecastPayload.decode(bytes).metric);
+
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertNull(ForecastPayload.decode(truncated));
+
+        bytes[0] = (byte) (ForecastPayload.FORMAT_VERSION + 1);
+        assertNull(ForecastPayload.decode(bytes));
+        assertNull(ForecastPayload.decode(null));
+    }
+
+    public void testSmallerThanDataMapWithAsset() {
+        int payloadSize = createWeek(true).encode().length;
+
+        // What a single day used to cost: two formatted strings, a timestamp and the icon PNG
+        DataMap dataMap = new DataMap();
+        dataMap.putString(AppConstants.KEY_HIGH_TEMPERATURE, "21\u00B0");
+        dataMap.putString(AppConstants.KEY_LOW_TEMPERATURE, "8\u00B0");
+        dataMap.putLong(AppConstants.KEY_TIMESTAMP, System.currentTimeMillis());
+        Bitmap icon = BitmapFactory.decodeResource(mContext.getResources(), R.drawable.ic_clear);
+        Bitmap scaled = Bitmap.createScaledBitmap(icon, WearIconAtlas.ICON_SIZE_PX,
+                WearIconAtlas.ICON_SIZE_PX, true);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        scaled.compress(Bitmap.CompressFormat.PNG, 100, png);
+        int oldSize = dataMap.toByteArray().length + png.size();
+
+        Log.d(LOG_TAG, "A week of forecast: " + payloadSize + " bytes, today with its icon: "
+                + oldSize + " bytes");
+        assertTrue("Error: " + payloadSize + " bytes for a week is not smaller than "
+                + oldSize + " for a day", payloadSize < oldSize);
+    }
+
+    private static ForecastPayload createWeek(boolean metric) {
+        ForecastPayload.Day[] days = new ForecastPayload.Day[ForecastPayload.MAX_DAYS];
+        for (int i = 0; i < days.length; i++) {
+            int weatherId = i % 2 == 0 ? 800 : 501;
+            days[i] = new ForecastPayload.Day(FIRST_JULIAN_DAY + i, weatherId,
+                    WearIconAtlas.getIconIndex(weatherId),
+                    20.46 - i * 3.3, -4.13 + i, 40 + i * 8, 12.37 + i, i * 51);
+        }
+        return new ForecastPayload(metric, days);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.android.sunshine.app.wearsupport;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.Utility;
+
+/*
+    Checks that every condition with an icon has a cell in the atlas sent to the watch, and that
+    the atlas is the grayscale strip the watch expects.
+ */
+public class TestWearIconAtlas extends AndroidTestCase {
+
+    public void testEveryIconHasACell() {
+        // The OpenWeatherMap condition codes Utility knows about
+        for (int weatherId = 200; weatherId <= 962; weatherId++) {
+            int iconIndex = WearIconAtlas.getIconIndex(weatherId);
+            if (Utility.getIconResourceForWeatherCondition(weatherId) == -1) {
+                assertEquals("Error: no icon for " + weatherId + " but a cell", -1, iconIndex);
+            } else {
+                assertTrue("Error: no cell for the icon of " + weatherId, iconIndex >= 0);
+            }
+        }
+    }
+
+    public void testAtlasIsGrayscaleStrip() {
+        Bitmap atlas = WearIconAtlas.build(mContext.getResources());
+        assertEquals(WearIconAtlas.ICON_SIZE_PX, atlas.getHeight());
+        assertEquals(0, atlas.getWidth() % WearIconAtlas.ICON_SIZE_PX);
+        assertTrue(WearIconAtlas.getIconIndex(800) < atlas.getWidth() / WearIconAtlas.ICON_SIZE_PX);
+
+        for (int x = 0; x < atlas.getWidth(); x++) {
+            for (int y = 0; y < atlas.getHeight(); y++) {
+                int pixel = atlas.getPixel(x, y);
+                assertTrue("Error: colored pixel at " + x + "," + y,
+                        Color.red(pixel) == Color.green(pixel)
+                                && Color.green(pixel) == Color.blue(pixel));
+            }
+        }
+        atlas.recycle();
+    }
+}
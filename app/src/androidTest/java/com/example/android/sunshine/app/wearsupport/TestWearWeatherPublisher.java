@@ -0,0 +1,40 @@
+package com.example.android.sunshine.app.wearsupport;
+
+import android.test.AndroidTestCase;
+
+/*
+    Checks that the content hash only changes with what the watch shows, so unchanged weather
+    isn't put again.
+ */
+public class TestWearWeatherPublisher extends AndroidTestCase {
+
+    private static final byte[] FORECAST = {1, 0, 1, 0, 37, 127, 12, 0};
+
+    public void testContentHashIsStable() {
+        String hash = WearWeatherPublisher.getContentHash("21\u00B0", "8\u00B0", 800, 0,
+                FORECAST);
+        assertEquals(40, hash.length());
+        assertEquals(hash, WearWeatherPublisher.getContentHash("21\u00B0", "8\u00B0", 800, 0,
+                FORECAST.clone()));
+        assertEquals(WearWeatherPublisher.getContentHash("21\u00B0", "8\u00B0", 800, 0, null),
+                WearWeatherPublisher.getContentHash("21\u00B0", "8\u00B0", 800, 0, null));
+    }
+
+    public void testContentHashChangesWithContent() {
+        String hash = WearWeatherPublisher.getContentHash("21\u00B0", "8\u00B0", 800, 0,
+                FORECAST);
+        assertFalse(hash.equals(WearWeatherPublisher.getContentHash("22\u00B0", "8\u00B0", 800,
+                0, FORECAST)));
+        assertFalse(hash.equals(WearWeatherPublisher.getContentHash("21\u00B0", "8\u00B0", 801,
+                0, FORECAST)));
+        assertFalse(hash.equals(WearWeatherPublisher.getContentHash("21\u00B0", "8\u00B0", 800,
+                1, FORECAST)));
+        assertFalse(hash.equals(WearWeatherPublisher.getContentHash("21\u00B0", "8\u00B0", 800,
+                0, null)));
+
+        byte[] changed = FORECAST.clone();
+        changed[changed.length - 1]++;
+        assertFalse(hash.equals(WearWeatherPublisher.getContentHash("21\u00B0", "8\u00B0", 800,
+                0, changed)));
+    }
+}
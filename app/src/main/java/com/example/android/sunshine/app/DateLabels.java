@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.text.format.Time;
+import android.util.SparseArray;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The date labels of the forecast, e.g. "Tomorrow" or "Today, June 24", cached by julian day.
+ *
+ * The list, the detail view and the widget ask for the same few days over and over.  Each
+ * label is formatted once for the current day, the cache is dropped when the day rolls over
+ * and when the time zone, the clock or the locale change.  Safe to use from the widget's
+ * binder threads.
+ */
+public final class DateLabels {
+
+    // A forecast window and then some, older entries are dropped when it fills up
+    private static final int MAX_CACHED_DAYS = 32;
+
+    private static DateLabels sInstance;
+
+    private static final class Day {
+        String dayName;
+        String monthDay;
+        String friendly;
+        String longFriendly;
+        String fullFriendly;
+    }
+
+    private final Context mContext;
+    private final SparseArray<Day> mDays = new SparseArray<>();
+
+    // What the cache is valid for
+    private boolean mValid;
+    private long mValidUntilMs;
+    private Locale mLocale;
+    private long mGmtOffSeconds;
+    private int mCurrentJulianDay;
+
+    private String mToday;
+    private String mTomorrow;
+    private SimpleDateFormat mDayNameFormat;
+    private SimpleDateFormat mMonthDayFormat;
+    private SimpleDateFormat mShortDateFormat;
+
+    public static synchronized DateLabels getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new DateLabels(context.getApplicationContext());
+            sInstance.registerInvalidation();
+        }
+        return sInstance;
+    }
+
+    DateLabels(Context context) {
+        mContext = context;
+    }
+
+    private void registerInvalidation() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_DATE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        mContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+    }
+
+    synchronized void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * @see Utility#getFriendlyDayString(Context, long, boolean)
+     */
+    public synchronized String getFriendlyDayString(long dateInMillis, boolean displayLongToday) {
+        int julianDay = getJulianDay(dateInMillis);
+        Day day = getDay(julianDay);
+        if (displayLongToday && julianDay == mCurrentJulianDay) {
+            if (day.longFriendly == null) {
+                day.longFriendly = mContext.getString(R.string.format_full_friendly_date,
+                        mToday, getMonthDay(day, dateInMillis));
+            }
+            return day.longFriendly;
+        }
+        if (day.friendly == null) {
+            if (julianDay < mCurrentJulianDay + 7) {
+                // Less than a week in the future, just the day name
+                day.friendly = getDayName(day, julianDay, dateInMillis);
+            } else {
+                day.friendly = mShortDateFormat.format(dateInMillis);
+            }
+        }
+        return day.friendly;
+    }
+
+    /**
+     * @see Utility#getFullFriendlyDayString(Context, long)
+     */
+    public synchronized String getFullFriendlyDayString(long dateInMillis) {
+        int julianDay = getJulianDay(dateInMillis);
+        Day day = getDay(julianDay);
+        if (day.fullFriendly == null) {
+            day.fullFriendly = mContext.getString(R.string.format_full_friendly_date,
+                    getDayName(day, julianDay, dateInMillis), getMonthDay(day, dateInMillis));
+        }
+        return day.fullFriendly;
+    }
+
+    /**
+     * @see Utility#getDayName(Context, long)
+     */
+    public synchronized String getDayName(long dateInMillis) {
+        int julianDay = getJulianDay(dateInMillis);
+        return getDayName(getDay(julianDay), julianDay, dateInMillis);
+    }
+
+    /**
+     * @see Utility#getFormattedMonthDay(Context, long)
+     */
+    public synchronized String getFormattedMonthDay(long dateInMillis) {
+        return getMonthDay(getDay(getJulianDay(dateInMillis)), dateInMillis);
+    }
+
+    private String getDayName(Day day, int julianDay, long dateInMillis) {
+        if (day.dayName == null) {
+            if (julianDay == mCurrentJulianDay) {
+                day.dayName = mToday;
+            } else if (julianDay == mCurrentJulianDay + 1) {
+                day.dayName = mTomorrow;
+            } else {
+                day.dayName = mDayNameFormat.format(dateInMillis);
+            }
+        }
+        return day.dayName;
+    }
+
+    private String getMonthDay(Day day, long dateInMillis) {
+        if (day.monthDay == null) {
+            day.monthDay = mMonthDayFormat.format(dateInMillis);
+        }
+        return day.monthDay;
+    }
+
+    private Day getDay(int julianDay) {
+        Day day = mDays.get(julianDay);
+        if (day == null) {
+            if (mDays.size() >= MAX_CACHED_DAYS) {
+                mDays.clear();
+            }
+            day = new Day();
+            mDays.put(julianDay, day);
+        }
+        return day;
+    }
+
+    /**
+     * Checks the cache is still for today, then finds the julian day of the date.  Days are
+     * counted in the current offset from UTC, as Utility always did.
+     */
+    private int getJulianDay(long dateInMillis) {
+        long nowMs = System.currentTimeMillis();
+        if (!mValid || nowMs >= mValidUntilMs || Locale.getDefault() != mLocale) {
+            reset(nowMs);
+        }
+        return Time.getJulianDay(dateInMillis, mGmtOffSeconds);
+    }
+
+    private void reset(long nowMs) {
+        mDays.clear();
+        TimeZone timeZone = TimeZone.getDefault();
+        mGmtOffSeconds = timeZone.getOffset(nowMs) / 1000;
+        mCurrentJulianDay = Time.getJulianDay(nowMs, mGmtOffSeconds);
+
+        Calendar midnight = Calendar.getInstance(timeZone);
+        midnight.setTimeInMillis(nowMs);
+        midnight.set(Calendar.HOUR_OF_DAY, 0);
+        midnight.set(Calendar.MINUTE, 0);
+        midnight.set(Calendar.SECOND, 0);
+        midnight.set(Calendar.MILLISECOND, 0);
+        midnight.add(Calendar.DAY_OF_MONTH, 1);
+        mValidUntilMs = midnight.getTimeInMillis();
+
+        Locale locale = Locale.getDefault();
+        if (locale != mLocale) {
+            mLocale = locale;
+            mDayNameFormat = new SimpleDateFormat("EEEE", locale);
+            mMonthDayFormat = new SimpleDateFormat("MMMM dd", locale);
+            mShortDateFormat = new SimpleDateFormat("EEE MMM dd", locale);
+        } else {
+            // The formats hold the zone they were made in
+            mDayNameFormat.setTimeZone(timeZone);
+            mMonthDayFormat.setTimeZone(timeZone);
+            mShortDateFormat.setTimeZone(timeZone);
+        }
+        mToday = mContext.getString(R.string.today);
+        mTomorrow = mContext.getString(R.string.tomorrow);
+        mValid = true;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+
+/**
+ * The forecast list as ready-to-display rows, built off the UI thread by
+ * {@link ForecastRowsLoader}.  Binding a row only assigns what is already formatted.
+ */
+public final class ForecastRows {
+
+    static final ForecastRows EMPTY = new ForecastRows(new Row[0], null, null, null, null);
+
+    /**
+     * One day of the forecast list, formatted for display.
+     */
+    public static final class Row {
+        public final long id;
+        public final long date;
+        public final int weatherId;
+        // "Tomorrow", "Wednesday", "Mon Jun 8"
+        public final String dateLabel;
+        // "Today, June 8" for the today layout, otherwise the same as dateLabel
+        public final String longDateLabel;
+        public final String description;
+        public final String descriptionA11y;
+        public final String high;
+        public final String highA11y;
+        public final String low;
+        public final String lowA11y;
+        public final int iconResource;
+        public final int artResource;
+        // null when Sunshine uses its local graphics
+        public final String artUrl;
+
+        Row(long id, long date, int weatherId, String dateLabel, String longDateLabel,
+            String description, String descriptionA11y, String high, String highA11y,
+            String low, String lowA11y, int iconResource, int artResource, String artUrl) {
+            this.id = id;
+            this.date = date;
+            this.weatherId = weatherId;
+            this.dateLabel = dateLabel;
+            this.longDateLabel = longDateLabel;
+            this.description = description;
+            this.descriptionA11y = descriptionA11y;
+            this.high = high;
+            this.highA11y = highA11y;
+            this.low = low;
+            this.lowA11y = lowA11y;
+            this.iconResource = iconResource;
+            this.artResource = artResource;
+            this.artUrl = artUrl;
+        }
+
+        /**
+         * @return true if the row shows the same as the other, binding it again changes nothing
+         */
+        boolean sameContentAs(Row other) {
+            return id == other.id
+                    && date == other.date
+                    && weatherId == other.weatherId
+                    && iconResource == other.iconResource
+                    && artResource == other.artResource
+                    && dateLabel.equals(other.dateLabel)
+                    && longDateLabel.equals(other.longDateLabel)
+                    && description.equals(other.description)
+                    && high.equals(other.high)
+                    && low.equals(other.low)
+                    && (artUrl == null ? other.artUrl == null : artUrl.equals(other.artUrl));
+        }
+    }
+
+    private final Row[] mRows;
+    // Of the location the forecast is for, null if there is no forecast
+    public final String coordLat;
+    public final String coordLong;
+
+    // The rows this load replaces and how they changed, null for the first load
+    private final ForecastRows mPrevious;
+    private final ForecastRowsDiff mDiff;
+
+    private ForecastRows(Row[] rows, String coordLat, String coordLong, ForecastRows previous,
+                         ForecastRowsDiff diff) {
+        mRows = rows;
+        this.coordLat = coordLat;
+        this.coordLong = coordLong;
+        mPrevious = previous;
+        mDiff = diff;
+    }
+
+    /**
+     * @return the same rows, with what changed since the previous ones.  Slow, call it on a
+     * background thread.
+     */
+    ForecastRows diffFrom(ForecastRows previous) {
+        // Only the diff from the previous rows is kept, not theirs in turn
+        ForecastRows base = new ForecastRows(previous.mRows, previous.coordLat,
+                previous.coordLong, null, null);
+        return new ForecastRows(mRows, coordLat, coordLong, base,
+                ForecastRowsDiff.compute(previous, this));
+    }
+
+    /**
+     * @return how the rows changed since shown, null if that isn't known and everything has
+     * to be bound again
+     */
+    ForecastRowsDiff getDiffFrom(ForecastRows shown) {
+        if (shown == null) {
+            return null;
+        } else if (shown.mRows == mRows) {
+            // The loader delivered the same rows again, e.g. on restart
+            return ForecastRowsDiff.NONE;
+        }
+        return mPrevious != null && shown.mRows == mPrevious.mRows ? mDiff : null;
+    }
+
+    public int size() {
+        return mRows.length;
+    }
+
+    public Row get(int position) {
+        return mRows[position];
+    }
+
+    /**
+     * @return the position of the day, -1 if the list doesn't have it
+     */
+    public int indexOfDate(long date) {
+        for (int i = 0; i < mRows.length; i++) {
+            if (mRows[i].date == date) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Formats every row of a cursor with the {@link ForecastFragment} projection.  Slow, call
+     * it on a background thread.
+     */
+    static ForecastRows fromCursor(Context context, Cursor cursor) {
+        Row[] rows = new Row[cursor.getCount()];
+        if (rows.length == 0) {
+            return EMPTY;
+        }
+        // The preferences are the same for every row
+        boolean localGraphics = Utility.usingLocalGraphics(context);
+        String coordLat = null;
+        String coordLong = null;
+        for (int i = 0; i < rows.length && cursor.moveToPosition(i); i++) {
+            long date = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+            int weatherId = cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+            String dateLabel = Utility.getFriendlyDayString(context, date, false);
+            // Only the first row can use the today layout
+            String longDateLabel = i == 0
+                    ? Utility.getFriendlyDayString(context, date, true) : dateLabel;
+            String description = Utility.getStringForWeatherCondition(context, weatherId);
+            String high = Utility.formatTemperature(context,
+                    cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP));
+            String low = Utility.formatTemperature(context,
+                    cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP));
+            rows[i] = new Row(cursor.getLong(ForecastFragment.COL_WEATHER_ID),
+                    date,
+                    weatherId,
+                    dateLabel,
+                    longDateLabel,
+                    description,
+                    context.getString(R.string.a11y_forecast, description),
+                    high,
+                    context.getString(R.string.a11y_high_temp, high),
+                    low,
+                    context.getString(R.string.a11y_low_temp, low),
+                    Utility.getIconResourceForWeatherCondition(weatherId),
+                    Utility.getArtResourceForWeatherCondition(weatherId),
+                    localGraphics ? null
+                            : Utility.getArtUrlForWeatherCondition(context, weatherId));
+            if (i == 0) {
+                coordLat = cursor.getString(ForecastFragment.COL_COORD_LAT);
+                coordLong = cursor.getString(ForecastFragment.COL_COORD_LONG);
+            }
+        }
+        return new ForecastRows(rows, coordLat, coordLong, null, null);
+    }
+}
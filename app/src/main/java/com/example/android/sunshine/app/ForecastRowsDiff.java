@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * What changed between two loads of the forecast list, as the range notifications a
+ * RecyclerView.Adapter understands.  Rows are matched by date, both lists are sorted by it, so
+ * a single merge walk finds the removed, inserted and changed days.
+ *
+ * Computed on the loader's thread, so a sync that changes nothing rebinds nothing.
+ */
+final class ForecastRowsDiff {
+
+    private static final int REMOVE = 0;
+    private static final int INSERT = 1;
+    private static final int CHANGE = 2;
+
+    static final ForecastRowsDiff NONE = new ForecastRowsDiff();
+
+    // Triples of type, position and count, in the order they have to be dispatched
+    private int[] mOps = new int[3 * 4];
+    private int mSize;
+
+    private ForecastRowsDiff() {
+    }
+
+    static ForecastRowsDiff compute(ForecastRows oldRows, ForecastRows newRows) {
+        ForecastRowsDiff diff = new ForecastRowsDiff();
+        int oldIndex = 0;
+        int newIndex = 0;
+        // Position in the list as it is after the operations so far
+        int position = 0;
+        while (oldIndex < oldRows.size() && newIndex < newRows.size()) {
+            ForecastRows.Row oldRow = oldRows.get(oldIndex);
+            ForecastRows.Row newRow = newRows.get(newIndex);
+            if (oldRow.date < newRow.date) {
+                diff.add(REMOVE, position, 1);
+                oldIndex++;
+            } else if (oldRow.date > newRow.date) {
+                diff.add(INSERT, position, 1);
+                position++;
+                newIndex++;
+            } else {
+                if (!oldRow.sameContentAs(newRow)) {
+                    diff.add(CHANGE, position, 1);
+                }
+                position++;
+                oldIndex++;
+                newIndex++;
+            }
+        }
+        if (oldIndex < oldRows.size()) {
+            diff.add(REMOVE, position, oldRows.size() - oldIndex);
+        }
+        if (newIndex < newRows.size()) {
+            diff.add(INSERT, position, newRows.size() - newIndex);
+        }
+        return diff;
+    }
+
+    private void add(int type, int position, int count) {
+        if (mSize > 0 && mOps[mSize - 3] == type) {
+            int lastPosition = mOps[mSize - 2];
+            int lastCount = mOps[mSize - 1];
+            // Removals repeat the position, inserts and changes follow on
+            if ((type == REMOVE && position == lastPosition)
+                    || (type != REMOVE && position == lastPosition + lastCount)) {
+                mOps[mSize - 1] += count;
+                return;
+            }
+        }
+        if (mSize == mOps.length) {
+            mOps = Arrays.copyOf(mOps, mOps.length * 2);
+        }
+        mOps[mSize++] = type;
+        mOps[mSize++] = position;
+        mOps[mSize++] = count;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    void dispatchTo(RecyclerView.Adapter adapter) {
+        for (int i = 0; i < mSize; i += 3) {
+            int position = mOps[i + 1];
+            int count = mOps[i + 2];
+            switch (mOps[i]) {
+                case REMOVE:
+                    adapter.notifyItemRangeRemoved(position, count);
+                    break;
+                case INSERT:
+                    adapter.notifyItemRangeInserted(position, count);
+                    break;
+                default:
+                    adapter.notifyItemRangeChanged(position, count);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < mSize; i += 3) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(mOps[i] == REMOVE ? "remove " : mOps[i] == INSERT ? "insert " : "change ")
+                    .append(mOps[i + 1]).append('+').append(mOps[i + 2]);
+        }
+        return builder.toString();
+    }
+}
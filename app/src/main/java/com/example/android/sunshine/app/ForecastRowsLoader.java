@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.AsyncTaskLoader;
+
+/**
+ * Loads the forecast list like a CursorLoader, but formats the rows on the loader's thread,
+ * so scrolling doesn't format dates and temperatures on the UI thread.  The cursor is closed
+ * once the rows are built, changes to the uri load them again.  A reload also works out which
+ * rows changed, so the list only rebinds those.
+ */
+public class ForecastRowsLoader extends AsyncTaskLoader<ForecastRows> {
+
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+    private final Uri mUri;
+    private final String[] mProjection;
+    private final String mSortOrder;
+
+    // What was delivered last, read on the loader's thread to diff against
+    private volatile ForecastRows mRows;
+    private boolean mObserving;
+
+    public ForecastRowsLoader(Context context, Uri uri, String[] projection, String sortOrder) {
+        super(context);
+        mUri = uri;
+        mProjection = projection;
+        mSortOrder = sortOrder;
+    }
+
+    @Override
+    public ForecastRows loadInBackground() {
+        Cursor cursor = getContext().getContentResolver().query(mUri, mProjection, null, null,
+                mSortOrder);
+        if (cursor == null) {
+            return ForecastRows.EMPTY;
+        }
+        ForecastRows rows;
+        try {
+            rows = ForecastRows.fromCursor(getContext(), cursor);
+        } finally {
+            cursor.close();
+        }
+        ForecastRows previous = mRows;
+        return previous == null ? rows : rows.diffFrom(previous);
+    }
+
+    @Override
+    public void deliverResult(ForecastRows rows) {
+        if (isReset()) {
+            return;
+        }
+        mRows = rows;
+        if (isStarted()) {
+            super.deliverResult(rows);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            // Also notified when the settings change units or art pack
+            getContext().getContentResolver().registerContentObserver(mUri, true, mObserver);
+            mObserving = true;
+        }
+        if (mRows != null) {
+            deliverResult(mRows);
+        }
+        if (takeContentChanged() || mRows == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mRows = null;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The settings the app reads on its hot paths, read once into an immutable snapshot.
+ *
+ * List rows, widget rows, syncs and wear messages all ask for the location, the units and the
+ * art pack.  They get the current snapshot with one volatile read instead of a preferences
+ * lookup and a few resource strings each.  A new snapshot is published whenever one of these
+ * preferences changes, with a higher {@link #version}, so caches built from the settings can
+ * tell they are out of date by comparing a number.
+ */
+public final class SettingsSnapshot {
+
+    // What getArtUrlForWeatherCondition can ask for, formatted into the art pack url up front
+    private static final String[] ART_NAMES = {"storm", "light_rain", "rain", "snow", "fog",
+            "clear", "light_clouds", "clouds"};
+
+    private static volatile SettingsSnapshot sCurrent;
+    // Held here, the preferences only keep a weak reference
+    private static SharedPreferences.OnSharedPreferenceChangeListener sListener;
+
+    /**
+     * Increases with every change of the settings below, starting at 1.
+     */
+    public final int version;
+    public final String location;
+    public final boolean metric;
+    public final boolean localGraphics;
+    // The art pack url format, with %s for the art name
+    public final String artPack;
+    private final Map<String, String> mArtUrls;
+
+    private SettingsSnapshot(int version, String location, boolean metric,
+                             boolean localGraphics, String artPack) {
+        this.version = version;
+        this.location = location;
+        this.metric = metric;
+        this.localGraphics = localGraphics;
+        this.artPack = artPack;
+        mArtUrls = new HashMap<>(ART_NAMES.length * 2);
+        for (String artName : ART_NAMES) {
+            mArtUrls.put(artName, String.format(Locale.US, artPack, artName));
+        }
+    }
+
+    /**
+     * @return the current settings
+     */
+    public static SettingsSnapshot get(Context context) {
+        SettingsSnapshot snapshot = sCurrent;
+        if (snapshot == null) {
+            snapshot = refresh(context);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reads the settings again and publishes them if they changed.  The preference listener
+     * does this on its own, call it where a change has to be seen right away, before the
+     * other listeners run.
+     *
+     * @return the current settings
+     */
+    public static synchronized SettingsSnapshot refresh(Context context) {
+        context = context.getApplicationContext();
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        if (sListener == null) {
+            final Context appContext = context;
+            sListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+                    refresh(appContext);
+                }
+            };
+            prefs.registerOnSharedPreferenceChangeListener(sListener);
+        }
+
+        String location = prefs.getString(context.getString(R.string.pref_location_key),
+                context.getString(R.string.pref_location_default));
+        String metricUnits = context.getString(R.string.pref_units_metric);
+        boolean metric = prefs.getString(context.getString(R.string.pref_units_key), metricUnits)
+                .equals(metricUnits);
+        String sunshineArtPack = context.getString(R.string.pref_art_pack_sunshine);
+        String artPack = prefs.getString(context.getString(R.string.pref_art_pack_key),
+                sunshineArtPack);
+        boolean localGraphics = artPack.equals(sunshineArtPack);
+
+        SettingsSnapshot current = sCurrent;
+        if (current != null && current.location.equals(location) && current.metric == metric
+                && current.artPack.equals(artPack)) {
+            // Some other preference, e.g. the location status, nothing to invalidate
+            return current;
+        }
+        SettingsSnapshot snapshot = new SettingsSnapshot(current == null ? 1 : current.version + 1,
+                location, metric, localGraphics, artPack);
+        sCurrent = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * @param artName e.g. "light_clouds"
+     * @return the url of the art in the chosen art pack
+     */
+    public String getArtUrl(String artName) {
+        String url = mArtUrls.get(artName);
+        return url != null ? url : String.format(Locale.US, artPack, artName);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+
+import java.util.Locale;
+
+/**
+ * Formats temperatures and wind in the units the user prefers, from lookup tables.
+ *
+ * Temperatures are shown in whole degrees and wind in whole km/h or mph, so every realistic
+ * value maps to one cell of a table that is formatted the first time it's needed.  The tables
+ * are for the current units and locale, they are dropped when the {@link SettingsSnapshot}
+ * version or the locale changes.  Safe to use from any thread: a racing thread at worst
+ * formats a cell twice.
+ */
+public final class UnitFormatter {
+
+    // In the units shown, anything outside is formatted on every call
+    private static final int MIN_TEMPERATURE = -100;
+    private static final int MAX_TEMPERATURE = 150;
+    private static final int MAX_WIND_SPEED = 250;
+
+    private static final float KMH_TO_MPH = .621371192237334f;
+
+    // Compass directions every 45 degrees, starting north, and for a direction that isn't known
+    private static final String[] DIRECTIONS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW",
+            "Unknown"};
+    private static final int UNKNOWN_DIRECTION = DIRECTIONS.length - 1;
+
+    private static UnitFormatter sInstance;
+
+    private static final class Tables {
+        final int settingsVersion;
+        final boolean metric;
+        final Locale locale;
+        final String temperatureFormat;
+        final String windFormat;
+        final String[] temperatures = new String[MAX_TEMPERATURE - MIN_TEMPERATURE + 1];
+        final String[] winds = new String[(MAX_WIND_SPEED + 1) * DIRECTIONS.length];
+
+        Tables(Context context, SettingsSnapshot settings, Locale locale) {
+            settingsVersion = settings.version;
+            metric = settings.metric;
+            this.locale = locale;
+            temperatureFormat = context.getString(R.string.format_temperature);
+            windFormat = context.getString(
+                    metric ? R.string.format_wind_kmh : R.string.format_wind_mph);
+        }
+    }
+
+    private final Context mContext;
+    private volatile Tables mTables;
+
+    public static synchronized UnitFormatter getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new UnitFormatter(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    UnitFormatter(Context context) {
+        mContext = context;
+    }
+
+    public boolean isMetric() {
+        return getTables().metric;
+    }
+
+    /**
+     * @param temperature in Celsius, as stored
+     * @return the temperature in whole degrees of the preferred units
+     */
+    public String formatTemperature(double temperature) {
+        Tables tables = getTables();
+        if (!tables.metric) {
+            temperature = (temperature * 1.8) + 32;
+        }
+        long degrees = roundHalfUp(temperature);
+        if (degrees < MIN_TEMPERATURE || degrees > MAX_TEMPERATURE
+                || (degrees == 0 && temperature < 0) || Double.isNaN(temperature)) {
+            // Out of the table, or a slightly negative value String.format shows as minus zero
+            return String.format(tables.temperatureFormat, temperature);
+        }
+        int index = (int) degrees - MIN_TEMPERATURE;
+        String formatted = tables.temperatures[index];
+        if (formatted == null) {
+            formatted = String.format(tables.temperatureFormat, (double) degrees);
+            tables.temperatures[index] = formatted;
+        }
+        return formatted;
+    }
+
+    /**
+     * @param windSpeed in km/h, as stored
+     * @param degrees the direction the wind comes from
+     * @return the speed in the preferred units and the compass direction, e.g. "12 km/h NW"
+     */
+    public String formatWind(float windSpeed, float degrees) {
+        Tables tables = getTables();
+        if (!tables.metric) {
+            windSpeed = KMH_TO_MPH * windSpeed;
+        }
+        int direction = getDirectionIndex(degrees);
+        long speed = roundHalfUp(windSpeed);
+        if (speed < 0 || speed > MAX_WIND_SPEED || (speed == 0 && windSpeed < 0)
+                || Float.isNaN(windSpeed)) {
+            return String.format(tables.windFormat, windSpeed, DIRECTIONS[direction]);
+        }
+        int index = (int) speed * DIRECTIONS.length + direction;
+        String formatted = tables.winds[index];
+        if (formatted == null) {
+            formatted = String.format(tables.windFormat, (float) speed, DIRECTIONS[direction]);
+            tables.winds[index] = formatted;
+        }
+        return formatted;
+    }
+
+    /**
+     * @return the index in DIRECTIONS of the 45 degree wide bucket the direction falls in
+     */
+    static int getDirectionIndex(float degrees) {
+        if (degrees >= 337.5 || degrees < 22.5) {
+            return 0;
+        } else if (degrees >= 22.5 && degrees < 337.5) {
+            return 1 + (int) ((degrees - 22.5f) / 45);
+        }
+        // NaN
+        return UNKNOWN_DIRECTION;
+    }
+
+    private Tables getTables() {
+        Tables tables = mTables;
+        SettingsSnapshot settings = SettingsSnapshot.get(mContext);
+        Locale locale = Locale.getDefault();
+        if (tables == null || tables.settingsVersion != settings.version
+                || tables.locale != locale) {
+            tables = new Tables(mContext, settings, locale);
+            mTables = tables;
+        }
+        return tables;
+    }
+
+    // The rounding String.format applies to "%1.0f"
+    private static long roundHalfUp(double value) {
+        return value < 0 ? -(long) Math.floor(-value + 0.5) : (long) Math.floor(value + 0.5);
+    }
+}
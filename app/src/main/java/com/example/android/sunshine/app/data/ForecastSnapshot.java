@@ -0,0 +1,140 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+/**
+ * Every weather row stored for one location setting, joined with its location, held in memory
+ * in date order.  Never changes once built; {@link ForecastSnapshotCache} replaces it instead.
+ */
+final class ForecastSnapshot {
+
+    // The join columns a snapshot holds, qualified so that both _ids can be told apart
+    static final String[] COLUMNS = {
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_LOC_KEY,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_DATE,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_DEGREES,
+            LocationEntry.TABLE_NAME + "." + LocationEntry._ID,
+            LocationEntry.TABLE_NAME + "." + LocationEntry.COLUMN_LOCATION_SETTING,
+            LocationEntry.TABLE_NAME + "." + LocationEntry.COLUMN_CITY_NAME,
+            LocationEntry.TABLE_NAME + "." + LocationEntry.COLUMN_COORD_LAT,
+            LocationEntry.TABLE_NAME + "." + LocationEntry.COLUMN_COORD_LONG
+    };
+    private static final int COL_DATE = 2;
+
+    static final String SORT_BY_DATE = WeatherEntry.COLUMN_DATE + " ASC";
+
+    final String locationSetting;
+    private final Object[][] mRows;
+
+    private ForecastSnapshot(String locationSetting, Object[][] rows) {
+        this.locationSetting = locationSetting;
+        mRows = rows;
+    }
+
+    /**
+     * Reads the snapshot from a cursor over {@link #COLUMNS}, sorted by date.
+     */
+    static ForecastSnapshot fromCursor(String locationSetting, Cursor cursor) {
+        Object[][] rows = new Object[cursor.getCount()][];
+        for (int i = 0; cursor.moveToNext(); i++) {
+            Object[] row = new Object[COLUMNS.length];
+            for (int column = 0; column < COLUMNS.length; column++) {
+                switch (cursor.getType(column)) {
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        row[column] = cursor.getLong(column);
+                        break;
+                    case Cursor.FIELD_TYPE_FLOAT:
+                        row[column] = cursor.getDouble(column);
+                        break;
+                    case Cursor.FIELD_TYPE_NULL:
+                        break;
+                    default:
+                        row[column] = cursor.getString(column);
+                }
+            }
+            rows[i] = row;
+        }
+        return new ForecastSnapshot(locationSetting, rows);
+    }
+
+    /**
+     * @return true if a query with this projection and sort order can be answered from a
+     * snapshot.  "*" depends on the column order of the tables, so it is left to SQLite.
+     * Without a sort order SQLite gives no order at all, so date order is as good as any.
+     */
+    static boolean canServe(String[] projection, String sortOrder) {
+        if (projection == null) {
+            return false;
+        }
+        for (String column : projection) {
+            if (findColumn(column) == -1) {
+                return false;
+            }
+        }
+        return sortOrder == null || SORT_BY_DATE.equalsIgnoreCase(sortOrder.trim())
+                || WeatherEntry.COLUMN_DATE.equalsIgnoreCase(sortOrder.trim());
+    }
+
+    int getRowCount() {
+        return mRows.length;
+    }
+
+    /**
+     * The rows dated from startDate to endDate inclusive, as the join query would return them.
+     * Only for queries that pass {@link #canServe}.
+     *
+     * @param limit the most rows to return, 0 for all of them
+     */
+    Cursor query(String[] projection, long startDate, long endDate, int limit) {
+        int[] columns = new int[projection.length];
+        String[] names = new String[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            columns[i] = findColumn(projection[i]);
+            // SQLite names "weather._id" just "_id"
+            names[i] = projection[i].substring(projection[i].lastIndexOf('.') + 1);
+        }
+
+        MatrixCursor cursor = new MatrixCursor(names);
+        int count = 0;
+        for (Object[] row : mRows) {
+            long date = (Long) row[COL_DATE];
+            if (date < startDate) {
+                continue;
+            }
+            if (date > endDate || (limit > 0 && count == limit)) {
+                break;
+            }
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = row[columns[i]];
+            }
+            cursor.addRow(values);
+            count++;
+        }
+        return cursor;
+    }
+
+    private static int findColumn(String name) {
+        boolean qualified = name.indexOf('.') != -1;
+        for (int i = 0; i < COLUMNS.length; i++) {
+            String column = COLUMNS[i];
+            if (qualified ? column.equals(name)
+                    : column.substring(column.indexOf('.') + 1).equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link ForecastSnapshot}s WeatherProvider answers forecast queries from.
+ *
+ * After a sync the list, both widgets, Muzei, the notification and the wearable all ask for the
+ * forecast of the preferred location.  The first of them reads it from SQLite, the others get
+ * it from memory.  Every write to the database clears the cache.
+ */
+class ForecastSnapshotCache {
+
+    // The preferred location, plus a few the user switched between
+    private static final int MAX_LOCATIONS = 4;
+
+    private final Map<String, ForecastSnapshot> mSnapshots =
+            new LinkedHashMap<String, ForecastSnapshot>(MAX_LOCATIONS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ForecastSnapshot> eldest) {
+                    return size() > MAX_LOCATIONS;
+                }
+            };
+    // Bumped by every invalidate(), so a snapshot read before a write can't be stored after it
+    private long mGeneration;
+    private final Object mLoadLock = new Object();
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+
+    /**
+     * @return the cached snapshot for the location setting, or null
+     */
+    ForecastSnapshot get(String locationSetting) {
+        ForecastSnapshot snapshot;
+        synchronized (mSnapshots) {
+            snapshot = mSnapshots.get(locationSetting);
+        }
+        if (snapshot != null) {
+            mHits.incrementAndGet();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reads the snapshot for the location setting from the database and caches it.  Loads are
+     * serialized, so consumers that miss at the same time share one query.
+     *
+     * @param joinBuilder the weather INNER JOIN location builder
+     */
+    ForecastSnapshot load(SQLiteDatabase db, SQLiteQueryBuilder joinBuilder, String selection,
+                          String locationSetting) {
+        synchronized (mLoadLock) {
+            long generation;
+            synchronized (mSnapshots) {
+                ForecastSnapshot snapshot = mSnapshots.get(locationSetting);
+                if (snapshot != null) {
+                    mHits.incrementAndGet();
+                    return snapshot;
+                }
+                generation = mGeneration;
+            }
+            mMisses.incrementAndGet();
+
+            Cursor cursor = joinBuilder.query(db, ForecastSnapshot.COLUMNS, selection,
+                    new String[]{locationSetting}, null, null, ForecastSnapshot.SORT_BY_DATE);
+            ForecastSnapshot snapshot;
+            try {
+                snapshot = ForecastSnapshot.fromCursor(locationSetting, cursor);
+            } finally {
+                cursor.close();
+            }
+
+            synchronized (mSnapshots) {
+                if (generation == mGeneration) {
+                    mSnapshots.put(locationSetting, snapshot);
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Drops every snapshot.  Called after each write to the weather or location table commits.
+     */
+    void invalidate() {
+        synchronized (mSnapshots) {
+            mGeneration++;
+            mSnapshots.clear();
+        }
+    }
+
+    long getHitCount() {
+        return mHits.get();
+    }
+
+    long getMissCount() {
+        return mMisses.get();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.os.Bundle;
+
+import java.util.Arrays;
+
+/**
+ * A batch of weather rows for a single location, stored column by column in parallel
+ * primitive arrays.  The sync adapter fills one of these straight from the parser and hands
+ * it to {@link WeatherProvider} with {@link #writeTo}, so no ContentValues are created on the
+ * way to the database.
+ */
+public class WeatherBatch {
+
+    private static final String KEY_SIZE = "size";
+    private static final String KEY_LOCATION_ID = "location_id";
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    public long locationId;
+    public int size;
+
+    // Normalized (see WeatherContract.normalizeDate) dates
+    public long[] dates;
+    public int[] weatherIds;
+    public String[] shortDescs;
+    public double[] minTemps;
+    public double[] maxTemps;
+    public double[] humidities;
+    public double[] pressures;
+    public double[] windSpeeds;
+    public double[] degrees;
+
+    public WeatherBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public WeatherBatch(int capacity) {
+        allocate(Math.max(capacity, 1));
+    }
+
+    /**
+     * Makes room for one more row and returns its index.  The caller fills in the columns.
+     */
+    public int addRow() {
+        if (size == dates.length) {
+            grow();
+        }
+        return size++;
+    }
+
+    private void allocate(int capacity) {
+        dates = new long[capacity];
+        weatherIds = new int[capacity];
+        shortDescs = new String[capacity];
+        minTemps = new double[capacity];
+        maxTemps = new double[capacity];
+        humidities = new double[capacity];
+        pressures = new double[capacity];
+        windSpeeds = new double[capacity];
+        degrees = new double[capacity];
+    }
+
+    private void grow() {
+        int capacity = dates.length * 2;
+        dates = Arrays.copyOf(dates, capacity);
+        weatherIds = Arrays.copyOf(weatherIds, capacity);
+        shortDescs = Arrays.copyOf(shortDescs, capacity);
+        minTemps = Arrays.copyOf(minTemps, capacity);
+        maxTemps = Arrays.copyOf(maxTemps, capacity);
+        humidities = Arrays.copyOf(humidities, capacity);
+        pressures = Arrays.copyOf(pressures, capacity);
+        windSpeeds = Arrays.copyOf(windSpeeds, capacity);
+        degrees = Arrays.copyOf(degrees, capacity);
+    }
+
+    /**
+     * Writes the batch through the provider.
+     *
+     * @return the number of rows inserted or changed
+     */
+    public int writeTo(ContentResolver resolver) {
+        Bundle result = resolver.call(WeatherContract.WeatherEntry.CONTENT_URI,
+                WeatherProvider.METHOD_BULK_WRITE_BATCH, null, toBundle());
+        return result != null ? result.getInt(WeatherProvider.KEY_CHANGED_COUNT) : 0;
+    }
+
+    /**
+     * Packs the batch into the extras for {@link WeatherProvider#METHOD_BULK_WRITE_BATCH}.
+     * The arrays are passed as they are, in-process calls don't copy them.
+     */
+    Bundle toBundle() {
+        Bundle extras = new Bundle();
+        extras.putInt(KEY_SIZE, size);
+        extras.putLong(KEY_LOCATION_ID, locationId);
+        extras.putLongArray(WeatherContract.WeatherEntry.COLUMN_DATE, dates);
+        extras.putIntArray(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherIds);
+        extras.putStringArray(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, shortDescs);
+        extras.putDoubleArray(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, minTemps);
+        extras.putDoubleArray(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, maxTemps);
+        extras.putDoubleArray(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidities);
+        extras.putDoubleArray(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressures);
+        extras.putDoubleArray(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeeds);
+        extras.putDoubleArray(WeatherContract.WeatherEntry.COLUMN_DEGREES, degrees);
+        return extras;
+    }
+
+    static WeatherBatch fromBundle(Bundle extras) {
+        WeatherBatch batch = new WeatherBatch(1);
+        batch.size = extras.getInt(KEY_SIZE);
+        batch.locationId = extras.getLong(KEY_LOCATION_ID);
+        batch.dates = extras.getLongArray(WeatherContract.WeatherEntry.COLUMN_DATE);
+        batch.weatherIds = extras.getIntArray(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
+        batch.shortDescs = extras.getStringArray(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC);
+        batch.minTemps = extras.getDoubleArray(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP);
+        batch.maxTemps = extras.getDoubleArray(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP);
+        batch.humidities = extras.getDoubleArray(WeatherContract.WeatherEntry.COLUMN_HUMIDITY);
+        batch.pressures = extras.getDoubleArray(WeatherContract.WeatherEntry.COLUMN_PRESSURE);
+        batch.windSpeeds = extras.getDoubleArray(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED);
+        batch.degrees = extras.getDoubleArray(WeatherContract.WeatherEntry.COLUMN_DEGREES);
+        if (batch.dates == null || batch.weatherIds == null || batch.shortDescs == null
+                || batch.minTemps == null || batch.maxTemps == null || batch.humidities == null
+                || batch.pressures == null || batch.windSpeeds == null || batch.degrees == null
+                || batch.dates.length < batch.size) {
+            throw new IllegalArgumentException("Incomplete weather batch");
+        }
+        return batch;
+    }
+}
@@ -28,12 +28,23 @@ import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 public class WeatherDbHelper extends SQLiteOpenHelper {
 
     // If you change the database schema, you must increment the database version.
-    private static final int DATABASE_VERSION = 2;
+    static final int DATABASE_VERSION = 3;
 
     static final String DATABASE_NAME = "weather.db";
 
+    // Every weather query is "this location, from this date on".  The UNIQUE (date, location_id)
+    // constraint has its index the wrong way round for that, so add one keyed on the location.
+    static final String WEATHER_LOCATION_DATE_INDEX = "weather_location_date_idx";
+    private static final String SQL_CREATE_WEATHER_LOCATION_DATE_INDEX =
+            "CREATE INDEX IF NOT EXISTS " + WEATHER_LOCATION_DATE_INDEX + " ON " +
+                    WeatherEntry.TABLE_NAME + " (" +
+                    WeatherEntry.COLUMN_LOC_KEY + ", " +
+                    WeatherEntry.COLUMN_DATE + ");";
+
     public WeatherDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Let WeatherProvider's queries run while a sync is writing
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -81,18 +92,67 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
 
         sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_TABLE);
         sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_LOCATION_DATE_INDEX);
+    }
+
+    /**
+     * One step of the schema history: upgrades a database from {@link #fromVersion} to the
+     * version right after it, keeping its data.
+     */
+    abstract static class Migration {
+        final int fromVersion;
+
+        Migration(int fromVersion) {
+            this.fromVersion = fromVersion;
+        }
+
+        abstract void migrate(SQLiteDatabase db);
     }
 
+    // Every schema change since version 2, oldest first.  When you bump DATABASE_VERSION, add
+    // the step that takes the previous version to the new one here, and make the same change in
+    // onCreate.
+    static final Migration[] MIGRATIONS = {
+            // 2 -> 3: index weather on (location_id, date)
+            new Migration(2) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL(SQL_CREATE_WEATHER_LOCATION_DATE_INDEX);
+                }
+            },
+    };
+
+    // Databases older than this have no migration path and are recreated
+    static final int OLDEST_MIGRATABLE_VERSION = 2;
+
     @Override
     public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
-        // This database is only a cache for online data, so its upgrade policy is
-        // to simply to discard the data and start over
-        // Note that this only fires if you change the version number for your database.
-        // It does NOT depend on the version number for your application.
-        // If you want to update the schema without wiping data, commenting out the next 2 lines
-        // should be your top priority before modifying this method.
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LocationEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
-        onCreate(sqLiteDatabase);
+        if (oldVersion < OLDEST_MIGRATABLE_VERSION) {
+            // Nothing before version 2 is worth keeping: it is only a cache for online data,
+            // so discard it and start over.
+            sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LocationEntry.TABLE_NAME);
+            sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
+            onCreate(sqLiteDatabase);
+            return;
+        }
+
+        // From version 2 on, upgrade in place so the cached forecast is there right away after
+        // an app update.  SQLiteOpenHelper runs onUpgrade in a single transaction, so either
+        // every step applies or the database stays at oldVersion.
+        int version = oldVersion;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.fromVersion < version) {
+                continue;
+            }
+            if (migration.fromVersion != version || version >= newVersion) {
+                break;
+            }
+            migration.migrate(sqLiteDatabase);
+            version++;
+        }
+        if (version != newVersion) {
+            throw new IllegalStateException("No migration from database version " + version
+                    + " to " + newVersion);
+        }
     }
 }
@@ -22,15 +22,25 @@ import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
+import android.text.format.Time;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
 public class WeatherProvider extends ContentProvider {
 
     private static final String LOG_TAG = WeatherProvider.class.getSimpleName();
     // The URI Matcher used by this content provider.
     private static final UriMatcher sUriMatcher = buildUriMatcher();
+    // In WAL mode, so queries get their own connections from the helper's pool and don't wait
+    // for a sync's writes
     private WeatherDbHelper mOpenHelper;
+    private final ForecastSnapshotCache mSnapshots = new ForecastSnapshotCache();
 
     static final int WEATHER = 100;
     static final int WEATHER_WITH_LOCATION = 101;
@@ -38,6 +48,54 @@ public class WeatherProvider extends ContentProvider {
     static final int LOCATION = 300;
     static final int WEATHER_WITH_LOCATION_WEARABLE = 104;
 
+    // ContentProvider#call method writing a WeatherBatch; the reply holds KEY_CHANGED_COUNT
+    public static final String METHOD_BULK_WRITE_BATCH = "bulkWriteBatch";
+    public static final String KEY_CHANGED_COUNT = "changed_count";
+
+    // ContentProvider#call method returning how often queries were answered from memory
+    public static final String METHOD_GET_SNAPSHOT_STATS = "getSnapshotStats";
+    public static final String KEY_SNAPSHOT_HITS = "snapshot_hits";
+    public static final String KEY_SNAPSHOT_MISSES = "snapshot_misses";
+
+    // Both statements number their parameters so they can share the same bindings:
+    // ?1 location_id, ?2 date, ?3 short_desc, ?4 weather_id, ?5 min, ?6 max, ?7 humidity,
+    // ?8 pressure, ?9 wind, ?10 degrees
+    private static final String sBatchInsertStatement =
+            "INSERT OR IGNORE INTO " + WeatherContract.WeatherEntry.TABLE_NAME + " (" +
+                    WeatherContract.WeatherEntry.COLUMN_LOC_KEY + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_SHORT_DESC + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_WEATHER_ID + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_MIN_TEMP + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_MAX_TEMP + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_HUMIDITY + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_PRESSURE + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_WIND_SPEED + ", " +
+                    WeatherContract.WeatherEntry.COLUMN_DEGREES +
+                    ") VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7, ?8, ?9, ?10)";
+
+    // Only matches when the stored row differs, so unchanged rows are neither written nor counted
+    private static final String sBatchUpdateStatement =
+            "UPDATE " + WeatherContract.WeatherEntry.TABLE_NAME + " SET " +
+                    WeatherContract.WeatherEntry.COLUMN_SHORT_DESC + " = ?3, " +
+                    WeatherContract.WeatherEntry.COLUMN_WEATHER_ID + " = ?4, " +
+                    WeatherContract.WeatherEntry.COLUMN_MIN_TEMP + " = ?5, " +
+                    WeatherContract.WeatherEntry.COLUMN_MAX_TEMP + " = ?6, " +
+                    WeatherContract.WeatherEntry.COLUMN_HUMIDITY + " = ?7, " +
+                    WeatherContract.WeatherEntry.COLUMN_PRESSURE + " = ?8, " +
+                    WeatherContract.WeatherEntry.COLUMN_WIND_SPEED + " = ?9, " +
+                    WeatherContract.WeatherEntry.COLUMN_DEGREES + " = ?10" +
+                    " WHERE " + WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ?1 AND " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " = ?2 AND (" +
+                    WeatherContract.WeatherEntry.COLUMN_SHORT_DESC + " IS NOT ?3 OR " +
+                    WeatherContract.WeatherEntry.COLUMN_WEATHER_ID + " IS NOT ?4 OR " +
+                    WeatherContract.WeatherEntry.COLUMN_MIN_TEMP + " IS NOT ?5 OR " +
+                    WeatherContract.WeatherEntry.COLUMN_MAX_TEMP + " IS NOT ?6 OR " +
+                    WeatherContract.WeatherEntry.COLUMN_HUMIDITY + " IS NOT ?7 OR " +
+                    WeatherContract.WeatherEntry.COLUMN_PRESSURE + " IS NOT ?8 OR " +
+                    WeatherContract.WeatherEntry.COLUMN_WIND_SPEED + " IS NOT ?9 OR " +
+                    WeatherContract.WeatherEntry.COLUMN_DEGREES + " IS NOT ?10)";
+
     private static final SQLiteQueryBuilder sWeatherByLocationSettingQueryBuilder;
 
     static{
@@ -71,63 +129,104 @@ public class WeatherProvider extends ContentProvider {
                     "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
                     WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ";
 
-    private Cursor getWearableWeatherByLocationSetting(Uri uri, String[] projection, String sortOrder){
+    //weather.location_id = ? AND date = ?
+    private static final String sLocationIdAndDaySelection =
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ? AND " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ";
+
+    private static final SQLiteQueryBuilder sWeatherQueryBuilder = new SQLiteQueryBuilder();
+    private static final SQLiteQueryBuilder sLocationQueryBuilder = new SQLiteQueryBuilder();
+
+    static {
+        sWeatherQueryBuilder.setTables(WeatherContract.WeatherEntry.TABLE_NAME);
+        sLocationQueryBuilder.setTables(WeatherContract.LocationEntry.TABLE_NAME);
+    }
+
+    /**
+     * The tables, selection and limit a query on one of our URIs runs with.  Kept apart from
+     * query() so that tests can look at the query plan of exactly what the provider runs.
+     */
+    static class QuerySpec {
+        final SQLiteQueryBuilder builder;
+        final String selection;
+        final String[] selectionArgs;
+        final String limit;
+
+        QuerySpec(SQLiteQueryBuilder builder, String selection, String[] selectionArgs,
+                  String limit) {
+            this.builder = builder;
+            this.selection = selection;
+            this.selectionArgs = selectionArgs;
+            this.limit = limit;
+        }
+
+        String buildQuery(String[] projection, String sortOrder) {
+            return builder.buildQuery(projection, selection, null, null, sortOrder, limit);
+        }
+
+        Cursor query(SQLiteDatabase db, String[] projection, String sortOrder) {
+            return builder.query(db, projection, selection, selectionArgs, null, null,
+                    sortOrder, limit);
+        }
+    }
 
+    static QuerySpec getQuerySpec(Uri uri, String selection, String[] selectionArgs) {
+        switch (sUriMatcher.match(uri)) {
+            // "weather/*/*"
+            case WEATHER_WITH_LOCATION_AND_DATE:
+                return getWeatherByLocationSettingAndDate(uri);
+            // "weather/*"
+            case WEATHER_WITH_LOCATION:
+                return getWeatherByLocationSetting(uri);
+            // "weather"
+            case WEATHER:
+                return new QuerySpec(sWeatherQueryBuilder, selection, selectionArgs, null);
+            // "location"
+            case LOCATION:
+                return new QuerySpec(sLocationQueryBuilder, selection, selectionArgs, null);
+            // "wearable/sync/*"
+            case WEATHER_WITH_LOCATION_WEARABLE:
+                return getWearableWeatherByLocationSetting(uri);
+            default:
+                throw new UnsupportedOperationException("Unknown uri: " + uri);
+        }
+    }
 
+    private static QuerySpec getWearableWeatherByLocationSetting(Uri uri) {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromWearableUri(uri);
         long startDate = WeatherContract.WeatherEntry.getStartDateFromUri(uri);
 
-        String[] selectionArgs = new String[]{locationSetting, Long.toString(startDate)};
-        String selection = sLocationSettingWithStartDateSelection;
-
-        return sWeatherByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
-                projection,
-                selection,
-                selectionArgs,
-                null,
-                null,
-                sortOrder,
-                "1"
-        );
+        return new QuerySpec(sWeatherByLocationSettingQueryBuilder,
+                sLocationSettingWithStartDateSelection,
+                new String[]{locationSetting, Long.toString(startDate)},
+                "1");
     }
-    private Cursor getWeatherByLocationSetting(Uri uri, String[] projection, String sortOrder) {
+
+    private static QuerySpec getWeatherByLocationSetting(Uri uri) {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
         long startDate = WeatherContract.WeatherEntry.getStartDateFromUri(uri);
 
-        String[] selectionArgs;
-        String selection;
-
         if (startDate == 0) {
-            selection = sLocationSettingSelection;
-            selectionArgs = new String[]{locationSetting};
+            return new QuerySpec(sWeatherByLocationSettingQueryBuilder,
+                    sLocationSettingSelection,
+                    new String[]{locationSetting},
+                    null);
         } else {
-            selectionArgs = new String[]{locationSetting, Long.toString(startDate)};
-            selection = sLocationSettingWithStartDateSelection;
+            return new QuerySpec(sWeatherByLocationSettingQueryBuilder,
+                    sLocationSettingWithStartDateSelection,
+                    new String[]{locationSetting, Long.toString(startDate)},
+                    null);
         }
-
-        return sWeatherByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
-                projection,
-                selection,
-                selectionArgs,
-                null,
-                null,
-                sortOrder
-        );
     }
 
-    private Cursor getWeatherByLocationSettingAndDate(
-            Uri uri, String[] projection, String sortOrder) {
+    private static QuerySpec getWeatherByLocationSettingAndDate(Uri uri) {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
         long date = WeatherContract.WeatherEntry.getDateFromUri(uri);
 
-        return sWeatherByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
-                projection,
+        return new QuerySpec(sWeatherByLocationSettingQueryBuilder,
                 sLocationSettingAndDaySelection,
                 new String[]{locationSetting, Long.toString(date)},
-                null,
-                null,
-                sortOrder
-        );
+                null);
     }
 
     /*
@@ -198,58 +297,59 @@ public class WeatherProvider extends ContentProvider {
     public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
                         String sortOrder) {
 
-        // Here's the switch statement that, given a URI, will determine what kind of request it is,
+        // Here's where, given a URI, we determine what kind of request it is,
         // and query the database accordingly.
-        Cursor retCursor;
+        Cursor retCursor = querySnapshot(uri, projection, sortOrder);
+        if (retCursor == null) {
+            retCursor = getQuerySpec(uri, selection, selectionArgs)
+                    .query(mOpenHelper.getReadableDatabase(), projection, sortOrder);
+        }
+        retCursor.setNotificationUri(getContext().getContentResolver(), uri);
+        return retCursor;
+    }
+
+    /**
+     * Answers the forecast routes of a location setting from its in-memory snapshot, reading
+     * the snapshot from the database first if a write dropped it.  These routes ignore the
+     * selection, so only the projection and sort order decide whether a snapshot will do.
+     *
+     * @return the cursor, or null if the query has to go to SQLite
+     */
+    private Cursor querySnapshot(Uri uri, String[] projection, String sortOrder) {
+        if (!ForecastSnapshot.canServe(projection, sortOrder)) {
+            return null;
+        }
+        String locationSetting;
+        long startDate;
+        long endDate = Long.MAX_VALUE;
+        int limit = 0;
         switch (sUriMatcher.match(uri)) {
-            // "weather/*/*"
-            case WEATHER_WITH_LOCATION_AND_DATE:
-            {
-                retCursor = getWeatherByLocationSettingAndDate(uri, projection, sortOrder);
-                break;
-            }
-            // "weather/*"
-            case WEATHER_WITH_LOCATION: {
-                retCursor = getWeatherByLocationSetting(uri, projection, sortOrder);
-                break;
-            }
-            // "weather"
-            case WEATHER: {
-                retCursor = mOpenHelper.getReadableDatabase().query(
-                        WeatherContract.WeatherEntry.TABLE_NAME,
-                        projection,
-                        selection,
-                        selectionArgs,
-                        null,
-                        null,
-                        sortOrder
-                );
+            case WEATHER_WITH_LOCATION:
+                locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
+                // 0 when the uri has no start date, which is every row
+                startDate = WeatherContract.WeatherEntry.getStartDateFromUri(uri);
                 break;
-            }
-            // "location"
-            case LOCATION: {
-                retCursor = mOpenHelper.getReadableDatabase().query(
-                        WeatherContract.LocationEntry.TABLE_NAME,
-                        projection,
-                        selection,
-                        selectionArgs,
-                        null,
-                        null,
-                        sortOrder
-                );
+            case WEATHER_WITH_LOCATION_AND_DATE:
+                locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
+                startDate = endDate = WeatherContract.WeatherEntry.getDateFromUri(uri);
                 break;
-            }
-            case WEATHER_WITH_LOCATION_WEARABLE:{
-
-                retCursor = getWearableWeatherByLocationSetting(uri, projection, sortOrder);
+            case WEATHER_WITH_LOCATION_WEARABLE:
+                locationSetting =
+                        WeatherContract.WeatherEntry.getLocationSettingFromWearableUri(uri);
+                startDate = WeatherContract.WeatherEntry.getStartDateFromUri(uri);
+                limit = 1;
                 break;
-            }
-
             default:
-                throw new UnsupportedOperationException("Unknown uri: " + uri);
+                return null;
         }
-        retCursor.setNotificationUri(getContext().getContentResolver(), uri);
-        return retCursor;
+
+        ForecastSnapshot snapshot = mSnapshots.get(locationSetting);
+        if (snapshot == null) {
+            snapshot = mSnapshots.load(mOpenHelper.getReadableDatabase(),
+                    sWeatherByLocationSettingQueryBuilder, sLocationSettingSelection,
+                    locationSetting);
+        }
+        return snapshot.query(projection, startDate, endDate, limit);
     }
 
     /*
@@ -282,6 +382,7 @@ public class WeatherProvider extends ContentProvider {
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
+        mSnapshots.invalidate();
         getContext().getContentResolver().notifyChange(uri, null);
         return returnUri;
     }
@@ -307,6 +408,7 @@ public class WeatherProvider extends ContentProvider {
         }
         // Because a null deletes all rows
         if (rowsDeleted != 0) {
+            mSnapshots.invalidate();
             getContext().getContentResolver().notifyChange(uri, null);
         }
         return rowsDeleted;
@@ -341,6 +443,7 @@ public class WeatherProvider extends ContentProvider {
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
         if (rowsUpdated != 0) {
+            mSnapshots.invalidate();
             getContext().getContentResolver().notifyChange(uri, null);
         }
         return rowsUpdated;
@@ -352,13 +455,14 @@ public class WeatherProvider extends ContentProvider {
         final int match = sUriMatcher.match(uri);
         switch (match) {
             case WEATHER:
+                // location id -> normalized dates of the rows that were inserted or changed
+                HashMap<Long, ArrayList<Long>> changedDates = new HashMap<Long, ArrayList<Long>>();
                 db.beginTransaction();
                 int returnCount = 0;
                 try {
                     for (ContentValues value : values) {
                         normalizeDate(value);
-                        long _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
+                        if (upsertWeather(db, value, changedDates)) {
                             returnCount++;
                         }
                     }
@@ -366,13 +470,217 @@ public class WeatherProvider extends ContentProvider {
                 } finally {
                     db.endTransaction();
                 }
-                getContext().getContentResolver().notifyChange(uri, null);
+                if (returnCount != 0) {
+                    mSnapshots.invalidate();
+                }
+                notifyWeatherChanged(db, uri, changedDates);
                 return returnCount;
             default:
                 return super.bulkInsert(uri, values);
         }
     }
 
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (METHOD_BULK_WRITE_BATCH.equals(method)) {
+            Bundle result = new Bundle();
+            result.putInt(KEY_CHANGED_COUNT, writeBatch(WeatherBatch.fromBundle(extras)));
+            return result;
+        }
+        if (METHOD_GET_SNAPSHOT_STATS.equals(method)) {
+            Bundle result = new Bundle();
+            result.putLong(KEY_SNAPSHOT_HITS, mSnapshots.getHitCount());
+            result.putLong(KEY_SNAPSHOT_MISSES, mSnapshots.getMissCount());
+            return result;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Fast path for the sync adapter: writes a columnar batch with two statements compiled
+     * once per batch, binding the primitive columns directly.  Like bulkInsert, new dates are
+     * inserted and existing rows are only written when they differ, keeping their _id.
+     *
+     * @return the number of rows inserted or changed
+     */
+    private int writeBatch(WeatherBatch batch) {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        Time time = new Time();
+        long changedDate = 0;
+        int returnCount = 0;
+
+        db.beginTransaction();
+        SQLiteStatement insert = null;
+        SQLiteStatement update = null;
+        try {
+            insert = db.compileStatement(sBatchInsertStatement);
+            update = db.compileStatement(sBatchUpdateStatement);
+            for (int i = 0; i < batch.size; i++) {
+                long date = WeatherContract.normalizeDate(time, batch.dates[i]);
+                bindBatchRow(insert, batch, i, date);
+                if (insert.executeInsert() == -1) {
+                    // the date is already there, see if anything changed
+                    bindBatchRow(update, batch, i, date);
+                    if (update.executeUpdateDelete() == 0) {
+                        continue;
+                    }
+                }
+                returnCount++;
+                changedDate = date;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            if (insert != null) insert.close();
+            if (update != null) update.close();
+            db.endTransaction();
+        }
+
+        if (returnCount != 0) {
+            mSnapshots.invalidate();
+        }
+        notifyWeatherChanged(db, WeatherContract.WeatherEntry.CONTENT_URI, batch.locationId,
+                returnCount, changedDate);
+        return returnCount;
+    }
+
+    private static void bindBatchRow(SQLiteStatement statement, WeatherBatch batch, int i,
+                                     long date) {
+        statement.bindLong(1, batch.locationId);
+        statement.bindLong(2, date);
+        statement.bindString(3, batch.shortDescs[i]);
+        statement.bindLong(4, batch.weatherIds[i]);
+        statement.bindDouble(5, batch.minTemps[i]);
+        statement.bindDouble(6, batch.maxTemps[i]);
+        statement.bindDouble(7, batch.humidities[i]);
+        statement.bindDouble(8, batch.pressures[i]);
+        statement.bindDouble(9, batch.windSpeeds[i]);
+        statement.bindDouble(10, batch.degrees[i]);
+    }
+
+    /**
+     * Writes one weather row, comparing it against the row already stored for the same
+     * location and date.  New dates are inserted, existing rows are only updated for the
+     * columns that differ, so the row keeps its _id.
+     *
+     * @return true if anything was written
+     */
+    private boolean upsertWeather(SQLiteDatabase db, ContentValues value,
+                                  HashMap<Long, ArrayList<Long>> changedDates) {
+        Long locationId = value.getAsLong(WeatherContract.WeatherEntry.COLUMN_LOC_KEY);
+        Long date = value.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
+        if (locationId == null || date == null) {
+            // Not something we can match up, let the constraints sort it out
+            return db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, value) != -1;
+        }
+
+        Cursor existing = db.query(WeatherContract.WeatherEntry.TABLE_NAME,
+                null,
+                sLocationIdAndDaySelection,
+                new String[]{Long.toString(locationId), Long.toString(date)},
+                null,
+                null,
+                null);
+        boolean changed;
+        try {
+            if (!existing.moveToFirst()) {
+                changed = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, value) != -1;
+            } else {
+                ContentValues changedValues = diffWeatherRow(existing, value);
+                changed = changedValues.size() > 0 && db.update(
+                        WeatherContract.WeatherEntry.TABLE_NAME,
+                        changedValues,
+                        WeatherContract.WeatherEntry._ID + " = ?",
+                        new String[]{existing.getString(
+                                existing.getColumnIndex(WeatherContract.WeatherEntry._ID))}) > 0;
+            }
+        } finally {
+            existing.close();
+        }
+
+        if (changed) {
+            ArrayList<Long> dates = changedDates.get(locationId);
+            if (dates == null) {
+                dates = new ArrayList<Long>();
+                changedDates.put(locationId, dates);
+            }
+            dates.add(date);
+        }
+        return changed;
+    }
+
+    /**
+     * @return the columns of value that differ from the cursor's current row
+     */
+    private static ContentValues diffWeatherRow(Cursor existing, ContentValues value) {
+        ContentValues changedValues = new ContentValues(value);
+        for (Map.Entry<String, Object> entry : value.valueSet()) {
+            int index = existing.getColumnIndex(entry.getKey());
+            if (index != -1 && isSameValue(existing, index, entry.getValue())) {
+                changedValues.remove(entry.getKey());
+            }
+        }
+        return changedValues;
+    }
+
+    private static boolean isSameValue(Cursor existing, int index, Object newValue) {
+        if (newValue == null || existing.isNull(index)) {
+            return newValue == null && existing.isNull(index);
+        }
+        if (existing.getType(index) == Cursor.FIELD_TYPE_INTEGER
+                && (newValue instanceof Long || newValue instanceof Integer)) {
+            return existing.getLong(index) == ((Number) newValue).longValue();
+        }
+        if (newValue instanceof Number) {
+            return existing.getDouble(index) == ((Number) newValue).doubleValue();
+        }
+        return newValue.toString().equals(existing.getString(index));
+    }
+
+    /**
+     * Notifies only the weather URIs whose rows changed: the date URI when a single day of a
+     * location changed, the location URI when several did.
+     */
+    private void notifyWeatherChanged(SQLiteDatabase db, Uri uri,
+                                      HashMap<Long, ArrayList<Long>> changedDates) {
+        for (Map.Entry<Long, ArrayList<Long>> entry : changedDates.entrySet()) {
+            ArrayList<Long> dates = entry.getValue();
+            notifyWeatherChanged(db, uri, entry.getKey(), dates.size(), dates.get(0));
+        }
+    }
+
+    private void notifyWeatherChanged(SQLiteDatabase db, Uri uri, long locationId,
+                                      int changedCount, long changedDate) {
+        if (changedCount == 0) {
+            return;
+        }
+        String locationSetting = getLocationSetting(db, locationId);
+        Uri changedUri;
+        if (locationSetting == null) {
+            changedUri = uri;
+        } else if (changedCount == 1) {
+            changedUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
+                    locationSetting, changedDate);
+        } else {
+            changedUri = WeatherContract.WeatherEntry.buildWeatherLocation(locationSetting);
+        }
+        getContext().getContentResolver().notifyChange(changedUri, null);
+    }
+
+    private static String getLocationSetting(SQLiteDatabase db, long locationId) {
+        Cursor cursor = db.query(WeatherContract.LocationEntry.TABLE_NAME,
+                new String[]{WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING},
+                WeatherContract.LocationEntry._ID + " = ?",
+                new String[]{Long.toString(locationId)},
+                null,
+                null,
+                null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
     // You do not need to call this method. This is a method specifically to assist the testing
     // framework in running smoothly. You can read more at:
     // http://developer.android.com/reference/android/content/ContentProvider.html#shutdown()
@@ -0,0 +1,246 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Small per-location cache of the last forecast response.
+ *
+ * For every location setting it keeps the HTTP validators (ETag / Last-Modified), a hash of the
+ * body, the julian day the body was written to the database on, and a gzipped copy of the body.
+ * The sync adapter uses it to make conditional requests and to skip parsing and writing a
+ * forecast that hasn't changed.
+ */
+public class ForecastHttpCache {
+
+    private static final String LOG_TAG = ForecastHttpCache.class.getSimpleName();
+
+    private static final String CACHE_DIR = "forecast";
+    private static final String BODY_SUFFIX = ".json.gz";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Bump when the layout of the meta file changes; older files are then ignored.
+    private static final int META_VERSION = 1;
+
+    private static final String HASH_ALGORITHM = "SHA-1";
+
+    /**
+     * What we know about one cached response.
+     */
+    public static class Entry {
+        String etag;
+        long lastModified;
+        byte[] bodyHash;
+        // The julian day whose forecast was written from this body, or -1 if it never was.
+        int writtenJulianDay = -1;
+        File body;
+
+        public boolean hasSameBody(Entry other) {
+            return other != null && Arrays.equals(bodyHash, other.bodyHash);
+        }
+
+        public boolean isWrittenFor(int julianDay) {
+            return writtenJulianDay == julianDay;
+        }
+    }
+
+    private final File mDir;
+
+    public ForecastHttpCache(Context context) {
+        mDir = new File(context.getCacheDir(), CACHE_DIR);
+    }
+
+    /**
+     * @return the cached entry for this location, or null if there is none we can use.
+     */
+    public Entry get(String locationSetting) {
+        String key = keyFor(locationSetting);
+        File metaFile = new File(mDir, key + META_SUFFIX);
+        File bodyFile = new File(mDir, key + BODY_SUFFIX);
+        if (!metaFile.exists() || !bodyFile.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(metaFile)));
+            if (in.readInt() != META_VERSION) {
+                return null;
+            }
+            Entry entry = new Entry();
+            String etag = in.readUTF();
+            entry.etag = etag.length() > 0 ? etag : null;
+            entry.lastModified = in.readLong();
+            entry.bodyHash = new byte[in.readUnsignedByte()];
+            in.readFully(entry.bodyHash);
+            entry.writtenJulianDay = in.readInt();
+            entry.body = bodyFile;
+            return entry;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error reading cached forecast for " + locationSetting, e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Adds If-None-Match / If-Modified-Since headers for the cached entry.  Must be called
+     * before the connection is opened.
+     */
+    public static void addValidators(Entry entry, HttpURLConnection urlConnection) {
+        if (entry == null) {
+            return;
+        }
+        if (entry.etag != null) {
+            urlConnection.setRequestProperty("If-None-Match", entry.etag);
+        }
+        if (entry.lastModified > 0) {
+            urlConnection.setIfModifiedSince(entry.lastModified);
+        }
+    }
+
+    /**
+     * Streams the response body into a gzipped temporary file, hashing it on the way.  Nothing
+     * replaces the current entry until {@link #commit} is called.
+     */
+    public Entry download(String locationSetting, HttpURLConnection urlConnection,
+                          InputStream inputStream) throws IOException {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            throw new IOException("Unable to create " + mDir);
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        File tempFile = new File(mDir, keyFor(locationSetting) + BODY_SUFFIX + TEMP_SUFFIX);
+        InputStream in = new DigestInputStream(inputStream, digest);
+        OutputStream out = new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            out.close();
+        }
+
+        Entry entry = new Entry();
+        entry.etag = urlConnection.getHeaderField("ETag");
+        entry.lastModified = urlConnection.getLastModified();
+        entry.bodyHash = digest.digest();
+        entry.body = tempFile;
+        return entry;
+    }
+
+    /**
+     * @return a stream over the (uncompressed) cached body of the entry.
+     */
+    public InputStream openBody(Entry entry) throws IOException {
+        return new GZIPInputStream(new BufferedInputStream(new FileInputStream(entry.body)));
+    }
+
+    /**
+     * Makes the entry the current one for this location, remembering that its body has been
+     * written to the database for the given julian day.
+     */
+    public void commit(String locationSetting, Entry entry, int julianDay) {
+        String key = keyFor(locationSetting);
+        File bodyFile = new File(mDir, key + BODY_SUFFIX);
+        File metaFile = new File(mDir, key + META_SUFFIX);
+        File tempMetaFile = new File(mDir, key + META_SUFFIX + TEMP_SUFFIX);
+
+        if (!bodyFile.equals(entry.body) && !entry.body.renameTo(bodyFile)) {
+            Log.e(LOG_TAG, "Unable to move cached forecast to " + bodyFile);
+            remove(locationSetting);
+            return;
+        }
+        entry.body = bodyFile;
+        entry.writtenJulianDay = julianDay;
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempMetaFile)));
+            out.writeInt(META_VERSION);
+            out.writeUTF(entry.etag != null ? entry.etag : "");
+            out.writeLong(entry.lastModified);
+            out.writeByte(entry.bodyHash.length);
+            out.write(entry.bodyHash);
+            out.writeInt(entry.writtenJulianDay);
+            out.close();
+            out = null;
+            if (!tempMetaFile.renameTo(metaFile)) {
+                throw new IOException("Unable to move " + tempMetaFile + " to " + metaFile);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error writing cached forecast for " + locationSetting, e);
+            remove(locationSetting);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * Drops whatever is cached for this location, including an uncommitted download.
+     */
+    public void remove(String locationSetting) {
+        String key = keyFor(locationSetting);
+        new File(mDir, key + META_SUFFIX).delete();
+        new File(mDir, key + META_SUFFIX + TEMP_SUFFIX).delete();
+        new File(mDir, key + BODY_SUFFIX).delete();
+        new File(mDir, key + BODY_SUFFIX + TEMP_SUFFIX).delete();
+    }
+
+    // Location settings are user input, so hash them into something safe to use as a file name.
+    private static String keyFor(String locationSetting) {
+        try {
+            byte[] hash = MessageDigest.getInstance(HASH_ALGORITHM)
+                    .digest(locationSetting.getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            // Every platform has SHA-1 and UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.android.sunshine.app.sync;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.android.sunshine.app.data.WeatherBatch;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+
+/**
+ * Pull parser for the OpenWeatherMap daily forecast response.
+ *
+ * Reads "city", "coord" and every "list" entry straight off the stream, so the response is
+ * never buffered into a String nor turned into a JSONObject tree.  Keys we don't use are skipped.
+ */
+public class ForecastJsonParser {
+
+    // Location information
+    private static final String OWM_CITY = "city";
+    private static final String OWM_CITY_NAME = "name";
+    private static final String OWM_COORD = "coord";
+
+    // Location coordinate
+    private static final String OWM_LATITUDE = "lat";
+    private static final String OWM_LONGITUDE = "lon";
+
+    // Weather information.  Each day's forecast info is an element of the "list" array.
+    private static final String OWM_LIST = "list";
+
+    private static final String OWM_PRESSURE = "pressure";
+    private static final String OWM_HUMIDITY = "humidity";
+    private static final String OWM_WINDSPEED = "speed";
+    private static final String OWM_WIND_DIRECTION = "deg";
+
+    // All temperatures are children of the "temp" object.
+    private static final String OWM_TEMPERATURE = "temp";
+    private static final String OWM_MAX = "max";
+    private static final String OWM_MIN = "min";
+
+    private static final String OWM_WEATHER = "weather";
+    private static final String OWM_DESCRIPTION = "main";
+    private static final String OWM_WEATHER_ID = "id";
+
+    private static final String OWM_MESSAGE_CODE = "cod";
+
+    /**
+     * Everything we keep from one forecast response.
+     */
+    public static class Forecast {
+        // "cod" is optional in the response; treat a missing one as a success
+        public int messageCode = HttpURLConnection.HTTP_OK;
+        public String cityName;
+        public double cityLatitude;
+        public double cityLongitude;
+        public boolean hasCity;
+        // One row per day, in the order sent by the server.  Dates and location are left for
+        // the caller to fill in.
+        public final WeatherBatch days = new WeatherBatch();
+    }
+
+    private ForecastJsonParser() {
+    }
+
+    /**
+     * Parses the forecast from the given stream.  The stream is not closed.
+     *
+     * @return the parsed forecast.  When {@link Forecast#messageCode} is not HTTP_OK the
+     * remaining fields should not be used.
+     * @throws JSONException if the document is well formed but does not look like a forecast
+     * @throws IOException if the stream could not be read or is not valid JSON
+     */
+    public static Forecast parse(InputStream in) throws IOException, JSONException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
+        Forecast forecast = new Forecast();
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (OWM_MESSAGE_CODE.equals(name)) {
+                    forecast.messageCode = reader.nextInt();
+                } else if (OWM_CITY.equals(name)) {
+                    readCity(reader, forecast);
+                } else if (OWM_LIST.equals(name)) {
+                    readDays(reader, forecast.days);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            // thrown by JsonReader when a token has an unexpected type
+            throw new JSONException(e.getMessage());
+        }
+
+        if (forecast.messageCode == HttpURLConnection.HTTP_OK && !forecast.hasCity) {
+            throw new JSONException("No value for " + OWM_CITY);
+        }
+        return forecast;
+    }
+
+    private static void readCity(JsonReader reader, Forecast forecast)
+            throws IOException, JSONException {
+        boolean hasName = false;
+        boolean hasCoord = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_CITY_NAME.equals(name)) {
+                forecast.cityName = reader.nextString();
+                hasName = true;
+            } else if (OWM_COORD.equals(name)) {
+                boolean hasLat = false;
+                boolean hasLon = false;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String coordName = reader.nextName();
+                    if (OWM_LATITUDE.equals(coordName)) {
+                        forecast.cityLatitude = reader.nextDouble();
+                        hasLat = true;
+                    } else if (OWM_LONGITUDE.equals(coordName)) {
+                        forecast.cityLongitude = reader.nextDouble();
+                        hasLon = true;
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                hasCoord = hasLat && hasLon;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!hasName || !hasCoord) {
+            throw new JSONException("Incomplete " + OWM_CITY + " object");
+        }
+        forecast.hasCity = true;
+    }
+
+    private static void readDays(JsonReader reader, WeatherBatch days)
+            throws IOException, JSONException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            readDay(reader, days, days.addRow());
+        }
+        reader.endArray();
+    }
+
+    private static void readDay(JsonReader reader, WeatherBatch days, int day)
+            throws IOException, JSONException {
+        // pressure, humidity, speed, deg, temp.min, temp.max, weather[0].main, weather[0].id
+        int seen = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_PRESSURE.equals(name)) {
+                days.pressures[day] = reader.nextDouble();
+                seen |= 1;
+            } else if (OWM_HUMIDITY.equals(name)) {
+                days.humidities[day] = reader.nextInt();
+                seen |= 1 << 1;
+            } else if (OWM_WINDSPEED.equals(name)) {
+                days.windSpeeds[day] = reader.nextDouble();
+                seen |= 1 << 2;
+            } else if (OWM_WIND_DIRECTION.equals(name)) {
+                days.degrees[day] = reader.nextDouble();
+                seen |= 1 << 3;
+            } else if (OWM_TEMPERATURE.equals(name)) {
+                // Temperatures are in a child object called "temp".  Try not to name variables
+                // "temp" when working with temperature.  It confuses everybody.
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String tempName = reader.nextName();
+                    if (OWM_MAX.equals(tempName)) {
+                        days.maxTemps[day] = reader.nextDouble();
+                        seen |= 1 << 4;
+                    } else if (OWM_MIN.equals(tempName)) {
+                        days.minTemps[day] = reader.nextDouble();
+                        seen |= 1 << 5;
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (OWM_WEATHER.equals(name)) {
+                // Description is in a child array called "weather", which is 1 element long.
+                // That element also contains a weather code.
+                reader.beginArray();
+                boolean first = true;
+                while (reader.hasNext()) {
+                    if (!first || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    first = false;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String weatherName = reader.nextName();
+                        if (OWM_DESCRIPTION.equals(weatherName)) {
+                            days.shortDescs[day] = reader.nextString();
+                            seen |= 1 << 6;
+                        } else if (OWM_WEATHER_ID.equals(weatherName)) {
+                            days.weatherIds[day] = reader.nextInt();
+                            seen |= 1 << 7;
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (seen != 0xFF) {
+            throw new JSONException("Incomplete " + OWM_LIST + " entry");
+        }
+    }
+}
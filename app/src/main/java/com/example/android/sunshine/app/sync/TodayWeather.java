@@ -0,0 +1,112 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Today's forecast for the preferred location, read once by {@link WeatherUpdateDispatcher}
+ * and handed to everything that shows it.  Travels to the widget and Muzei services as
+ * extras of their intents, so they don't have to query it again.
+ */
+public final class TodayWeather {
+
+    private static final String[] TODAY_COLUMNS = {
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
+    };
+    // these indices must match the projection
+    private static final int INDEX_DATE = 0;
+    private static final int INDEX_WEATHER_ID = 1;
+    private static final int INDEX_SHORT_DESC = 2;
+    private static final int INDEX_MAX_TEMP = 3;
+    private static final int INDEX_MIN_TEMP = 4;
+
+    private static final String EXTRA_LOCATION = "today_location";
+    private static final String EXTRA_DATE = "today_date";
+    private static final String EXTRA_WEATHER_ID = "today_weather_id";
+    private static final String EXTRA_DESCRIPTION = "today_description";
+    private static final String EXTRA_HIGH = "today_high";
+    private static final String EXTRA_LOW = "today_low";
+
+    public final String locationSetting;
+    public final long date;
+    public final int weatherId;
+    public final String description;
+    public final double high;
+    public final double low;
+
+    public TodayWeather(String locationSetting, long date, int weatherId, String description,
+                        double high, double low) {
+        this.locationSetting = locationSetting;
+        this.date = date;
+        this.weatherId = weatherId;
+        this.description = description;
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * @return the first forecast from today on for the preferred location, or null if there
+     * is none
+     */
+    public static TodayWeather query(Context context) {
+        String locationSetting = Utility.getPreferredLocation(context);
+        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                locationSetting, System.currentTimeMillis());
+        Cursor cursor = context.getContentResolver().query(weatherForLocationUri, TODAY_COLUMNS,
+                null, null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new TodayWeather(locationSetting,
+                    cursor.getLong(INDEX_DATE),
+                    cursor.getInt(INDEX_WEATHER_ID),
+                    cursor.getString(INDEX_SHORT_DESC),
+                    cursor.getDouble(INDEX_MAX_TEMP),
+                    cursor.getDouble(INDEX_MIN_TEMP));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public Intent putTo(Intent intent) {
+        return intent.putExtra(EXTRA_LOCATION, locationSetting)
+                .putExtra(EXTRA_DATE, date)
+                .putExtra(EXTRA_WEATHER_ID, weatherId)
+                .putExtra(EXTRA_DESCRIPTION, description)
+                .putExtra(EXTRA_HIGH, high)
+                .putExtra(EXTRA_LOW, low);
+    }
+
+    /**
+     * @return the forecast an intent carries, or null if it has none or it is for a location
+     * that is no longer the preferred one
+     */
+    public static TodayWeather fromIntent(Context context, Intent intent) {
+        if (intent == null || !intent.hasExtra(EXTRA_WEATHER_ID)) {
+            return null;
+        }
+        String locationSetting = intent.getStringExtra(EXTRA_LOCATION);
+        if (!Utility.getPreferredLocation(context).equals(locationSetting)) {
+            return null;
+        }
+        return new TodayWeather(locationSetting,
+                intent.getLongExtra(EXTRA_DATE, 0),
+                intent.getIntExtra(EXTRA_WEATHER_ID, 0),
+                intent.getStringExtra(EXTRA_DESCRIPTION),
+                intent.getDoubleExtra(EXTRA_HIGH, 0),
+                intent.getDoubleExtra(EXTRA_LOW, 0));
+    }
+}
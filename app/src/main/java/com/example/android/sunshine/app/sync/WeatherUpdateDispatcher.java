@@ -0,0 +1,433 @@
+package com.example.android.sunshine.app.sync;
+
+import android.annotation.SuppressLint;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.support.v4.app.NotificationCompat;
+import android.support.v4.app.TaskStackBuilder;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
+import com.example.android.sunshine.app.wearsupport.WearWeatherPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Lets the widgets, Muzei, the notification and the wearable know that the forecast changed.
+ *
+ * Syncs often come in bursts, a settings change right after the periodic sync for example.
+ * Changes reported within {@link #COALESCE_WINDOW_MS} of each other are dispatched once, and
+ * today's forecast is read once for all the sinks.  Each sink's time is kept, see
+ * {@link #getSinkStats()}.
+ *
+ * The sync that reported the change has usually returned by the time the sinks run, so a
+ * partial wake lock is held from the first change until the dispatch is done.  Otherwise the
+ * device could go back to sleep with the screen off and leave the update pending.
+ */
+public class WeatherUpdateDispatcher {
+
+    private static final String LOG_TAG = WeatherUpdateDispatcher.class.getSimpleName();
+
+    // Wait this long after the last change before dispatching...
+    static final long COALESCE_WINDOW_MS = 2000;
+    // ...but never hold back a change for longer than this
+    static final long MAX_DELAY_MS = 10000;
+
+    // The wake lock is released after the dispatch, this only bounds a dispatch that hangs
+    private static final long WAKE_LOCK_TIMEOUT_MS = MAX_DELAY_MS + 2 * 60 * 1000;
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int WEATHER_NOTIFICATION_ID = 3004;
+
+    /**
+     * Something that shows the forecast and needs to hear about changes to it.
+     */
+    interface Sink {
+        String getName();
+
+        /**
+         * Called on the dispatcher's thread.
+         *
+         * @param today today's forecast, or null if the database has none
+         */
+        void onWeatherUpdated(Context context, TodayWeather today);
+    }
+
+    /**
+     * The time the changes are coalesced by, {@link SystemClock#uptimeMillis()} but for tests.
+     */
+    interface Clock {
+        long uptimeMillis();
+    }
+
+    /**
+     * How often a sink was dispatched to and how long it took.
+     */
+    public static class SinkStats {
+        public final String name;
+        public int dispatchCount;
+        public long totalMillis;
+        public long maxMillis;
+
+        SinkStats(String name) {
+            this.name = name;
+        }
+
+        SinkStats(SinkStats other) {
+            this(other.name);
+            dispatchCount = other.dispatchCount;
+            totalMillis = other.totalMillis;
+            maxMillis = other.maxMillis;
+        }
+
+        void add(long millis) {
+            dispatchCount++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+        }
+    }
+
+    private static WeatherUpdateDispatcher sInstance;
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final Clock mClock;
+    private final PowerManager.WakeLock mWakeLock;
+    private final List<Sink> mSinks = new ArrayList<Sink>();
+    private final List<SinkStats> mStats = new ArrayList<SinkStats>();
+
+    // Guarded by this.  When the first undispatched change came in and when to dispatch it,
+    // 0 if there is none.
+    private long mFirstChangeAt;
+    private long mDispatchAt;
+    private int mChangeCount;
+    private int mDispatchCount;
+
+    private final Runnable mDispatch = new Runnable() {
+        @Override
+        public void run() {
+            dispatchIfDue();
+        }
+    };
+
+    public static synchronized WeatherUpdateDispatcher getInstance(Context context) {
+        if (sInstance == null) {
+            context = context.getApplicationContext();
+            HandlerThread thread = new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            PowerManager powerManager =
+                    (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            sInstance = new WeatherUpdateDispatcher(context, thread.getLooper(),
+                    new Clock() {
+                        @Override
+                        public long uptimeMillis() {
+                            return SystemClock.uptimeMillis();
+                        }
+                    },
+                    powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, LOG_TAG));
+            sInstance.addDefaultSinks();
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param looper the sinks are dispatched to on its thread
+     */
+    WeatherUpdateDispatcher(Context context, Looper looper, Clock clock,
+                            PowerManager.WakeLock wakeLock) {
+        mContext = context;
+        mHandler = new Handler(looper);
+        mClock = clock;
+        mWakeLock = wakeLock;
+        // Acquired once per burst, released once after its dispatch
+        mWakeLock.setReferenceCounted(false);
+    }
+
+    private void addDefaultSinks() {
+        addSink(new Sink() {
+            @Override
+            public String getName() {
+                return "widgets";
+            }
+
+            @Override
+            public void onWeatherUpdated(Context context, TodayWeather today) {
+                updateWidgets(context, today);
+            }
+        });
+        addSink(new Sink() {
+            @Override
+            public String getName() {
+                return "muzei";
+            }
+
+            @Override
+            public void onWeatherUpdated(Context context, TodayWeather today) {
+                updateMuzei(context, today);
+            }
+        });
+        addSink(new Sink() {
+            @Override
+            public String getName() {
+                return "notification";
+            }
+
+            @Override
+            public void onWeatherUpdated(Context context, TodayWeather today) {
+                notifyWeather(context, today);
+            }
+        });
+        addSink(new Sink() {
+            @Override
+            public String getName() {
+                return "wear";
+            }
+
+            @Override
+            public void onWeatherUpdated(Context context, TodayWeather today) {
+                if (today != null) {
+                    WearWeatherPublisher.publishIfChanged(context, today);
+                }
+            }
+        });
+    }
+
+    void addSink(Sink sink) {
+        mSinks.add(sink);
+        mStats.add(new SinkStats(sink.getName()));
+    }
+
+    /**
+     * Reports that the forecast in the database changed.  Returns right away, the sinks hear
+     * about it on the dispatcher's thread once the changes settle.
+     */
+    public void onDataChanged() {
+        synchronized (this) {
+            long now = mClock.uptimeMillis();
+            if (mFirstChangeAt == 0) {
+                mFirstChangeAt = now;
+                mWakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+            }
+            mChangeCount++;
+            mDispatchAt = Math.min(now + COALESCE_WINDOW_MS, mFirstChangeAt + MAX_DELAY_MS);
+            mHandler.removeCallbacks(mDispatch);
+            mHandler.postDelayed(mDispatch, mDispatchAt - now);
+        }
+    }
+
+    /**
+     * Dispatches the pending changes if their time has come.  Runs on the looper's thread.
+     */
+    void dispatchIfDue() {
+        int changeCount;
+        synchronized (this) {
+            if (mChangeCount == 0) {
+                return;
+            }
+            long now = mClock.uptimeMillis();
+            if (now < mDispatchAt) {
+                // Woken early, wait for the rest of the window
+                mHandler.removeCallbacks(mDispatch);
+                mHandler.postDelayed(mDispatch, mDispatchAt - now);
+                return;
+            }
+            changeCount = mChangeCount;
+            mChangeCount = 0;
+            mFirstChangeAt = 0;
+            mDispatchAt = 0;
+            mDispatchCount++;
+        }
+        try {
+            dispatch(changeCount);
+        } finally {
+            synchronized (this) {
+                // Unless a new burst started meanwhile, it holds the lock now
+                if (mFirstChangeAt == 0) {
+                    mWakeLock.release();
+                }
+            }
+        }
+    }
+
+    private void dispatch(int changeCount) {
+
+        long start = SystemClock.elapsedRealtime();
+        TodayWeather today = TodayWeather.query(mContext);
+        StringBuilder timings = new StringBuilder()
+                .append("query ").append(SystemClock.elapsedRealtime() - start).append(" ms");
+
+        for (int i = 0; i < mSinks.size(); i++) {
+            Sink sink = mSinks.get(i);
+            long sinkStart = SystemClock.elapsedRealtime();
+            try {
+                sink.onWeatherUpdated(mContext, today);
+            } catch (RuntimeException e) {
+                // One broken sink shouldn't keep the others from updating
+                Log.e(LOG_TAG, "Error updating " + sink.getName(), e);
+            }
+            long millis = SystemClock.elapsedRealtime() - sinkStart;
+            synchronized (this) {
+                mStats.get(i).add(millis);
+            }
+            timings.append(", ").append(sink.getName()).append(' ').append(millis).append(" ms");
+        }
+        Log.d(LOG_TAG, "Dispatched " + changeCount + " change(s): " + timings);
+    }
+
+    /**
+     * @return a copy of the time spent in each sink since the process started
+     */
+    public synchronized List<SinkStats> getSinkStats() {
+        List<SinkStats> stats = new ArrayList<SinkStats>(mStats.size());
+        for (SinkStats sinkStats : mStats) {
+            stats.add(new SinkStats(sinkStats));
+        }
+        return stats;
+    }
+
+    /**
+     * @return how many times the sinks were updated, however many changes each one covered
+     */
+    public synchronized int getDispatchCount() {
+        return mDispatchCount;
+    }
+
+    private static void updateWidgets(Context context, TodayWeather today) {
+        // Setting the package ensures that only components in our app will receive the broadcast
+        Intent dataUpdatedIntent = new Intent(SunshineSyncAdapter.ACTION_DATA_UPDATED)
+                .setPackage(context.getPackageName());
+        if (today != null) {
+            today.putTo(dataUpdatedIntent);
+        }
+        context.sendBroadcast(dataUpdatedIntent);
+    }
+
+    private static void updateMuzei(Context context, TodayWeather today) {
+        // Muzei is only compatible with Jelly Bean MR1+ devices, so there's no need to update the
+        // Muzei background on lower API level devices
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            Intent intent = new Intent(SunshineSyncAdapter.ACTION_DATA_UPDATED)
+                    .setClass(context, WeatherMuzeiSource.class);
+            if (today != null) {
+                today.putTo(intent);
+            }
+            context.startService(intent);
+        }
+    }
+
+    private static void notifyWeather(Context context, TodayWeather today) {
+        if (today == null) {
+            return;
+        }
+        //checking the last update and notify if it' the first of the day
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
+        boolean displayNotifications = prefs.getBoolean(displayNotificationsKey,
+                Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
+
+        if ( displayNotifications ) {
+
+            String lastNotificationKey = context.getString(R.string.pref_last_notification);
+            long lastSync = prefs.getLong(lastNotificationKey, 0);
+
+            if (System.currentTimeMillis() - lastSync >= DAY_IN_MILLIS) {
+                // Last sync was more than 1 day ago, let's send a notification with the weather.
+                int weatherId = today.weatherId;
+
+                int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
+                Resources resources = context.getResources();
+                int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
+                String artUrl = Utility.getArtUrlForWeatherCondition(context, weatherId);
+
+                // On Honeycomb and higher devices, we can retrieve the size of the large icon
+                // Prior to that, we use a fixed size
+                @SuppressLint("InlinedApi")
+                int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                        ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
+                        : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+                @SuppressLint("InlinedApi")
+                int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                        ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
+                        : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+
+                // Retrieve the large icon
+                Bitmap largeIcon;
+                try {
+                    largeIcon = Glide.with(context)
+                            .load(artUrl)
+                            .asBitmap()
+                            .error(artResourceId)
+                            .fitCenter()
+                            .into(largeIconWidth, largeIconHeight).get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Log.e(LOG_TAG, "Error retrieving large icon from " + artUrl, e);
+                    largeIcon = BitmapFactory.decodeResource(resources, artResourceId);
+                }
+                String title = context.getString(R.string.app_name);
+
+                // Define the text of the forecast.
+                String contentText = String.format(context.getString(R.string.format_notification),
+                        today.description,
+                        Utility.formatTemperature(context, today.high),
+                        Utility.formatTemperature(context, today.low));
+
+                // NotificationCompatBuilder is a very convenient way to build backward-compatible
+                // notifications.  Just throw in some data.
+                NotificationCompat.Builder mBuilder =
+                        new NotificationCompat.Builder(context)
+                                .setColor(resources.getColor(R.color.primary_light))
+                                .setSmallIcon(iconId)
+                                .setLargeIcon(largeIcon)
+                                .setContentTitle(title)
+                                .setContentText(contentText);
+
+                // Make something interesting happen when the user clicks on the notification.
+                // In this case, opening the app is sufficient.
+                Intent resultIntent = new Intent(context, MainActivity.class);
+
+                // The stack builder object will contain an artificial back stack for the
+                // started Activity.
+                // This ensures that navigating backward from the Activity leads out of
+                // your application to the Home screen.
+                TaskStackBuilder stackBuilder = TaskStackBuilder.create(context);
+                stackBuilder.addNextIntent(resultIntent);
+                PendingIntent resultPendingIntent =
+                        stackBuilder.getPendingIntent(
+                                0,
+                                PendingIntent.FLAG_UPDATE_CURRENT
+                        );
+                mBuilder.setContentIntent(resultPendingIntent);
+
+                NotificationManager mNotificationManager =
+                        (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+                // WEATHER_NOTIFICATION_ID allows you to update the notification later on.
+                mNotificationManager.notify(WEATHER_NOTIFICATION_ID, mBuilder.build());
+
+                //refreshing last sync
+                SharedPreferences.Editor editor = prefs.edit();
+                editor.putLong(lastNotificationKey, System.currentTimeMillis());
+                editor.commit();
+            }
+        }
+    }
+}
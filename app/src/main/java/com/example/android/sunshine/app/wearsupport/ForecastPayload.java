@@ -0,0 +1,180 @@
+package com.example.android.sunshine.app.wearsupport;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The forecast of the next few days in the compact binary form the watch decodes, so it can
+ * show the right day after midnight and format the temperatures itself.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * header  byte version, byte flags (bit 0: metric), byte day count, int first julian day
+ * day     byte julian day - first julian day, short condition id, byte icon atlas cell,
+ *         short high * 10, short low * 10 (Celsius), byte humidity,
+ *         short wind speed * 10 (km/h), short wind direction (degrees)
+ * </pre>
+ * The watch has a decoding copy of this class, keep both in step and bump
+ * {@link #FORMAT_VERSION} when the layout changes.
+ */
+public final class ForecastPayload {
+
+    static final int FORMAT_VERSION = 1;
+    public static final int MAX_DAYS = 7;
+
+    static final int HEADER_BYTES = 7;
+    static final int DAY_BYTES = 13;
+
+    private static final int FLAG_METRIC = 1;
+    private static final double SCALE = 10;
+
+    private static final String[] FORECAST_COLUMNS = {
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES
+    };
+    // these indices must match the projection
+    private static final int INDEX_DATE = 0;
+    private static final int INDEX_WEATHER_ID = 1;
+    private static final int INDEX_MAX_TEMP = 2;
+    private static final int INDEX_MIN_TEMP = 3;
+    private static final int INDEX_HUMIDITY = 4;
+    private static final int INDEX_WIND_SPEED = 5;
+    private static final int INDEX_DEGREES = 6;
+
+    public static final class Day {
+        public final int julianDay;
+        public final int weatherId;
+        public final int iconIndex;
+        public final double high;
+        public final double low;
+        public final int humidity;
+        public final double windSpeed;
+        public final int windDegrees;
+
+        public Day(int julianDay, int weatherId, int iconIndex, double high, double low,
+                   int humidity, double windSpeed, int windDegrees) {
+            this.julianDay = julianDay;
+            this.weatherId = weatherId;
+            this.iconIndex = iconIndex;
+            this.high = high;
+            this.low = low;
+            this.humidity = humidity;
+            this.windSpeed = windSpeed;
+            this.windDegrees = windDegrees;
+        }
+    }
+
+    public final boolean metric;
+    public final Day[] days;
+
+    public ForecastPayload(boolean metric, Day[] days) {
+        this.metric = metric;
+        this.days = days;
+    }
+
+    /**
+     * @return the forecast from today on for the preferred location, or null if there is none
+     */
+    public static ForecastPayload query(Context context) {
+        Uri forecastUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                Utility.getPreferredLocation(context), System.currentTimeMillis());
+        Cursor cursor = context.getContentResolver().query(forecastUri, FORECAST_COLUMNS,
+                null, null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            int count = Math.min(cursor.getCount(), MAX_DAYS);
+            if (count == 0) {
+                return null;
+            }
+            Day[] days = new Day[count];
+            Time time = new Time();
+            for (int i = 0; i < count && cursor.moveToNext(); i++) {
+                long date = cursor.getLong(INDEX_DATE);
+                time.set(date);
+                int weatherId = cursor.getInt(INDEX_WEATHER_ID);
+                days[i] = new Day(Time.getJulianDay(date, time.gmtoff),
+                        weatherId,
+                        WearIconAtlas.getIconIndex(weatherId),
+                        cursor.getDouble(INDEX_MAX_TEMP),
+                        cursor.getDouble(INDEX_MIN_TEMP),
+                        (int) Math.round(cursor.getDouble(INDEX_HUMIDITY)),
+                        cursor.getDouble(INDEX_WIND_SPEED),
+                        (int) Math.round(cursor.getDouble(INDEX_DEGREES)));
+            }
+            return new ForecastPayload(Utility.isMetric(context), days);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + days.length * DAY_BYTES);
+        int firstJulianDay = days[0].julianDay;
+        buffer.put((byte) FORMAT_VERSION);
+        buffer.put((byte) (metric ? FLAG_METRIC : 0));
+        buffer.put((byte) days.length);
+        buffer.putInt(firstJulianDay);
+        for (Day day : days) {
+            buffer.put((byte) (day.julianDay - firstJulianDay));
+            buffer.putShort((short) day.weatherId);
+            buffer.put((byte) day.iconIndex);
+            buffer.putShort(scale(day.high));
+            buffer.putShort(scale(day.low));
+            buffer.put((byte) day.humidity);
+            buffer.putShort(scale(day.windSpeed));
+            buffer.putShort((short) day.windDegrees);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return the forecast, or null if the bytes are not a forecast of this format version
+     */
+    public static ForecastPayload decode(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            if (buffer.get() != FORMAT_VERSION) {
+                return null;
+            }
+            boolean metric = (buffer.get() & FLAG_METRIC) != 0;
+            Day[] days = new Day[buffer.get() & 0xff];
+            int firstJulianDay = buffer.getInt();
+            for (int i = 0; i < days.length; i++) {
+                days[i] = new Day(firstJulianDay + (buffer.get() & 0xff),
+                        buffer.getShort(),
+                        buffer.get(),
+                        buffer.getShort() / SCALE,
+                        buffer.getShort() / SCALE,
+                        buffer.get() & 0xff,
+                        buffer.getShort() / SCALE,
+                        buffer.getShort());
+            }
+            return new ForecastPayload(metric, days);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static short scale(double value) {
+        long scaled = Math.round(value * SCALE);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, scaled));
+    }
+}
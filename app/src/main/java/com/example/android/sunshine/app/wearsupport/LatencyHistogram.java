@@ -0,0 +1,41 @@
+package com.example.android.sunshine.app.wearsupport;
+
+/**
+ * Counts latencies in a few fixed buckets, cheap enough to record every request.
+ */
+public class LatencyHistogram {
+
+    // Upper bounds in milliseconds, the last bucket takes everything slower
+    private static final long[] BUCKET_LIMITS_MS = {50, 100, 250, 500, 1000, 2500, 5000};
+
+    private final long[] mCounts = new long[BUCKET_LIMITS_MS.length + 1];
+    private long mMaxMillis;
+
+    public synchronized void record(long millis) {
+        int bucket = 0;
+        while (bucket < BUCKET_LIMITS_MS.length && millis >= BUCKET_LIMITS_MS[bucket]) {
+            bucket++;
+        }
+        mCounts[bucket]++;
+        mMaxMillis = Math.max(mMaxMillis, millis);
+    }
+
+    public synchronized long getCount() {
+        long count = 0;
+        for (long bucketCount : mCounts) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < mCounts.length; i++) {
+            builder.append(i < BUCKET_LIMITS_MS.length ? "<" + BUCKET_LIMITS_MS[i]
+                    : ">=" + BUCKET_LIMITS_MS[BUCKET_LIMITS_MS.length - 1])
+                    .append("ms: ").append(mCounts[i]).append(", ");
+        }
+        return builder.append("max ").append(mMaxMillis).append("ms").toString();
+    }
+}
@@ -2,35 +2,46 @@ package com.example.android.sunshine.app.wearsupport;
 
 import android.content.Context;
 import android.database.Cursor;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
-import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.constants.AppConstants;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.sync.TodayWeather;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.wearable.Asset;
-import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.MessageEvent;
-import com.google.android.gms.wearable.PutDataMapRequest;
-import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 import com.google.android.gms.wearable.WearableListenerService;
 
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
-public class SunshineListenerService extends WearableListenerService
-        implements GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener{
+/**
+ * Answers the watch's weather requests.
+ *
+ * The answer is built in the listener callback itself, which already runs on a worker thread,
+ * since the service is unbound as soon as the callback returns and nothing started from it is
+ * guaranteed to finish.  The client starts connecting when the service is created, so the
+ * callback only waits for a connection already under way.  Requests that come in while an
+ * answer is connecting or being put are answered by that same DataItem.
+ */
+public class SunshineListenerService extends WearableListenerService {
 
     // Reference: https://www.binpress.com/tutorial/a-guide-to-the-android-wear-message-api/152
     private static final String LOG_TAG = SunshineListenerService.class.getSimpleName();
+    private static final long CONNECT_TIMEOUT_S = 30;
+
+    // From a request coming in to the DataItem being put, for as long as the process lives
+    private static final LatencyHistogram sLatency = new LatencyHistogram();
+
     private GoogleApiClient mGoogleApiClient;
+    // When the requests the answer in progress covers came in, guarded by itself
+    private final List<Long> mPendingRequests = new ArrayList<>();
+    private boolean mAnswering;
 
     private static final String[] FORECAST_COLUMNS = {
             WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
@@ -50,75 +61,92 @@ public class SunshineListenerService extends WearableListenerService
     static final int COL_LOCATION_SETTING = 5;
     static final int COL_WEATHER_CONDITION_ID = 6;
 
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mGoogleApiClient = new GoogleApiClient.Builder(this)
+                .addApi(Wearable.API)
+                .build();
+        mGoogleApiClient.connect();
+    }
+
+    @Override
+    public void onDestroy() {
+        mGoogleApiClient.disconnect();
+        super.onDestroy();
+    }
+
     @Override
     public void onMessageReceived(MessageEvent messageEvent) {
 
         if(!messageEvent.getPath().equalsIgnoreCase(AppConstants.PATH_REQUEST_WEATHER))
             return;
 
-        if (mGoogleApiClient == null) {
-            mGoogleApiClient = new GoogleApiClient.Builder(this)
-                    .addConnectionCallbacks(this)
-                    .addOnConnectionFailedListener(this)
-                    .addApi(Wearable.API)
-                    .build();
+        synchronized (mPendingRequests) {
+            mPendingRequests.add(SystemClock.elapsedRealtime());
+            if (mAnswering) {
+                // The answer in progress covers this one
+                return;
+            }
+            mAnswering = true;
+        }
+
+        boolean published = false;
+        try {
+            published = publishWeather();
+        } finally {
+            List<Long> requests;
+            synchronized (mPendingRequests) {
+                requests = new ArrayList<>(mPendingRequests);
+                mPendingRequests.clear();
+                mAnswering = false;
+            }
+            if (published) {
+                long now = SystemClock.elapsedRealtime();
+                for (long receivedAt : requests) {
+                    sLatency.record(now - receivedAt);
+                }
+                Log.d(LOG_TAG, "Answered " + requests.size() + " request(s); latency "
+                        + sLatency);
+            }
         }
+    }
 
+    /**
+     * @return true if the weather was put for the watch
+     */
+    private boolean publishWeather() {
         if (!mGoogleApiClient.isConnected()) {
+            // Waits for the connect started in onCreate
             ConnectionResult connectionResult =
-                    mGoogleApiClient.blockingConnect(30, TimeUnit.SECONDS);
-
+                    mGoogleApiClient.blockingConnect(CONNECT_TIMEOUT_S, TimeUnit.SECONDS);
             if (!connectionResult.isSuccess()) {
                 Log.e(LOG_TAG, "Failed to connect to GoogleApiClient.");
-                return;
+                return false;
             }
         }
 
+        // The watch only asks when it has nothing to show, so send the weather even if it is
+        // what was last published.  After a sync the phone publishes on its own.
         Context context = getApplicationContext();
         Cursor weatherData = getWearableWeatherData(context);
+        boolean published = false;
         if (weatherData != null && weatherData.moveToFirst()){
-            // Send Data Item with weather data
-            sendWeatherData(weatherData, context);
+            TodayWeather today = new TodayWeather(
+                    weatherData.getString(COL_LOCATION_SETTING),
+                    weatherData.getLong(COL_WEATHER_DATE),
+                    weatherData.getInt(COL_WEATHER_CONDITION_ID),
+                    weatherData.getString(COL_WEATHER_DESC),
+                    weatherData.getDouble(COL_WEATHER_MAX_TEMP),
+                    weatherData.getDouble(COL_WEATHER_MIN_TEMP));
+            published = WearWeatherPublisher.publish(context, mGoogleApiClient, today);
         } else {
             Log.d(LOG_TAG, "No weather data");
         }
-    }
-
-    private void sendWeatherData(Cursor weatherData, Context context){
-        // get high temperature string
-        double high = weatherData.getDouble(COL_WEATHER_MAX_TEMP);
-        String highString = Utility.formatTemperature(context, high);
-        // get low temperature string
-        double low = weatherData.getDouble(COL_WEATHER_MIN_TEMP);
-        String lowString = Utility.formatTemperature(context, low);
-        // get icon asset
-        int weatherId = weatherData.getInt(COL_WEATHER_CONDITION_ID);
-        int defaultImage = Utility.getIconResourceForWeatherCondition(weatherId);
-
-        Bitmap weatherIcon = BitmapFactory.decodeResource(context.getResources(), defaultImage);
-        Bitmap scaleBitmap = WearUtils.scaleBitmap(weatherIcon, 22, 22);
-        Bitmap greyScaleIcon = WearUtils.toGrayscale(scaleBitmap);
-        // https://developer.android.com/training/wearables/data-layer/assets.html
-        sendWeatherDataItem(greyScaleIcon, highString, lowString);
-    }
-
-    private void sendWeatherDataItem(Bitmap weatherIcon, String highString, String lowString){
-
-        Asset iconAsset = WearUtils.toAsset(weatherIcon);
-        PutDataMapRequest dataMap = PutDataMapRequest.create(AppConstants.PATH_WEATHER_UPDATE);
-        dataMap.getDataMap().putAsset(AppConstants.KEY_WEATHER_ICON, iconAsset);
-        dataMap.getDataMap().putString(AppConstants.KEY_HIGH_TEMPERATURE, highString);
-        dataMap.getDataMap().putString(AppConstants.KEY_LOW_TEMPERATURE, lowString);
-        dataMap.getDataMap().putLong(AppConstants.KEY_TIMESTAMP, new Date().getTime());
-        PutDataRequest request = dataMap.asPutDataRequest();
-        Wearable.DataApi.putDataItem(mGoogleApiClient, request)
-                .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
-                    @Override
-                    public void onResult(DataApi.DataItemResult dataItemResult) {
-                        Log.d(LOG_TAG, "Sending image was successful: " + dataItemResult.getStatus()
-                                .isSuccess());
-                    }
-                });
+        if (weatherData != null) {
+            weatherData.close();
+        }
+        return published;
     }
 
     /**
@@ -137,20 +165,4 @@ public class SunshineListenerService extends WearableListenerService
         return getContentResolver().query(locationUri, FORECAST_COLUMNS, null, null,
                 sortOrder);
     }
-
-    @Override
-    public void onConnected(Bundle bundle) {
-        Wearable.DataApi.addListener(mGoogleApiClient, this);
-        Wearable.MessageApi.addListener(mGoogleApiClient, this);
-    }
-
-    @Override
-    public void onConnectionSuspended(int i) {
-        //Empty
-    }
-
-    @Override
-    public void onConnectionFailed(ConnectionResult connectionResult) {
-        //Empty
-    }
 }
@@ -0,0 +1,122 @@
+package com.example.android.sunshine.app.wearsupport;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.constants.AppConstants;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All the weather icons the watch face can show, scaled and turned grayscale once and packed
+ * side by side into a single strip.  The strip goes to the watch as an Asset of its own
+ * DataItem, which the watch keeps, so a weather update only has to say which cell to draw.
+ *
+ * Cell i of the strip holds {@code ICONS[i]} and starts at x = i * {@link #ICON_SIZE_PX}.
+ */
+public class WearIconAtlas {
+
+    private static final String LOG_TAG = WearIconAtlas.class.getSimpleName();
+
+    /**
+     * Bump whenever the icons, their order or their size change, so the watch replaces its copy.
+     */
+    public static final int VERSION = 1;
+    static final int ICON_SIZE_PX = 22;
+
+    private static final int[] ICONS = {
+            R.drawable.ic_clear,
+            R.drawable.ic_light_clouds,
+            R.drawable.ic_cloudy,
+            R.drawable.ic_fog,
+            R.drawable.ic_light_rain,
+            R.drawable.ic_rain,
+            R.drawable.ic_snow,
+            R.drawable.ic_storm
+    };
+
+    private static final long PUT_TIMEOUT_S = 30;
+    private static final String PREF_PUBLISHED_VERSION = "icon_atlas_version";
+
+    /**
+     * @return the cell of the atlas with the icon for a condition, or -1 if there is none
+     */
+    public static int getIconIndex(int weatherId) {
+        int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
+        for (int i = 0; i < ICONS.length; i++) {
+            if (ICONS[i] == iconId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static Bitmap build(Resources resources) {
+        Bitmap atlas = Bitmap.createBitmap(ICON_SIZE_PX * ICONS.length, ICON_SIZE_PX,
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlas);
+        // Scales and drops the colors in the same pass
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        ColorMatrix grayscale = new ColorMatrix();
+        grayscale.setSaturation(0);
+        paint.setColorFilter(new ColorMatrixColorFilter(grayscale));
+        Rect cell = new Rect();
+        for (int i = 0; i < ICONS.length; i++) {
+            Bitmap icon = BitmapFactory.decodeResource(resources, ICONS[i]);
+            cell.set(i * ICON_SIZE_PX, 0, (i + 1) * ICON_SIZE_PX, ICON_SIZE_PX);
+            canvas.drawBitmap(icon, null, cell, paint);
+            icon.recycle();
+        }
+        return atlas;
+    }
+
+    static boolean isPublished(Context context) {
+        return context.getSharedPreferences(WearWeatherPublisher.PREFS_NAME, Context.MODE_PRIVATE)
+                .getInt(PREF_PUBLISHED_VERSION, 0) == VERSION;
+    }
+
+    /**
+     * Puts the atlas in its DataItem with the connected client.  Blocks until the Data Layer
+     * took it.
+     *
+     * @return true if the DataItem was put
+     */
+    static boolean publish(Context context, GoogleApiClient client) {
+        Bitmap atlas = build(context.getResources());
+        PutDataMapRequest request = PutDataMapRequest.create(AppConstants.PATH_ICON_ATLAS);
+        DataMap dataMap = request.getDataMap();
+        dataMap.putAsset(AppConstants.KEY_ICON_ATLAS, WearUtils.toAsset(atlas));
+        dataMap.putInt(AppConstants.KEY_ICON_ATLAS_VERSION, VERSION);
+        dataMap.putInt(AppConstants.KEY_ICON_SIZE, ICON_SIZE_PX);
+        dataMap.putInt(AppConstants.KEY_ICON_COUNT, ICONS.length);
+        atlas.recycle();
+
+        DataApi.DataItemResult result = Wearable.DataApi.putDataItem(client,
+                request.asPutDataRequest()).await(PUT_TIMEOUT_S, TimeUnit.SECONDS);
+        boolean success = result.getStatus().isSuccess();
+        Log.d(LOG_TAG, "Sending icon atlas version " + VERSION + " was successful: " + success);
+
+        if (success) {
+            context.getSharedPreferences(WearWeatherPublisher.PREFS_NAME, Context.MODE_PRIVATE)
+                    .edit()
+                    .putInt(PREF_PUBLISHED_VERSION, VERSION)
+                    .apply();
+        }
+        return success;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.android.sunshine.app.wearsupport;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.constants.AppConstants;
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import com.example.android.sunshine.app.sync.TodayWeather;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.MessageApi;
+import com.google.android.gms.wearable.Node;
+import com.google.android.gms.wearable.NodeApi;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts today's weather in the DataItem the watch face reads.
+ *
+ * The phone publishes right after a sync, so the watch doesn't have to ask.  The DataItem only
+ * holds the weather itself, and a hash of what was last put is remembered: a sync that leaves
+ * the weather as it was doesn't touch the DataItem, which would wake up both devices and move
+ * the whole item.  How fresh the weather is goes in a small message of its own after every
+ * sync, so the watch still knows when to expect the next one.
+ *
+ * The icon itself isn't sent, only its cell in the {@link WearIconAtlas} the watch keeps.
+ * The atlas is published ahead of the first weather that needs it.  The next days go along as
+ * a {@link ForecastPayload}, so the watch moves on to the next day on its own at midnight.
+ */
+public class WearWeatherPublisher {
+
+    private static final String LOG_TAG = WearWeatherPublisher.class.getSimpleName();
+
+    private static final long CONNECT_TIMEOUT_S = 30;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Two longs: the time the weather was confirmed and the time of the next sync
+    static final int FRESHNESS_BYTES = 2 * 8;
+
+    static final String PREFS_NAME = "wear_publisher";
+    private static final String PREF_LAST_PUBLISHED = "last_published_hash";
+
+    /**
+     * Publishes the weather unless the watch already has the same, and tells the watch it is
+     * fresh.  Blocks, so call it on a background thread.
+     */
+    public static void publishIfChanged(Context context, TodayWeather today) {
+        GoogleApiClient client = new GoogleApiClient.Builder(context)
+                .addApi(Wearable.API)
+                .build();
+        ConnectionResult connectionResult = client.blockingConnect(CONNECT_TIMEOUT_S,
+                TimeUnit.SECONDS);
+        if (!connectionResult.isSuccess()) {
+            // No Android Wear on this phone, or Play services being updated
+            Log.d(LOG_TAG, "Failed to connect to GoogleApiClient: "
+                    + connectionResult.getErrorCode());
+            return;
+        }
+        try {
+            publish(context, client, today);
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    /**
+     * Publishes the weather with the connected client if its content changed, then sends the
+     * watch its freshness.  A watch that lost the weather reads the unchanged DataItem back
+     * from the Data Layer.  Blocks until the Data Layer took it.
+     *
+     * @return true if the watch has the weather and was told it is fresh
+     */
+    public static boolean publish(Context context, GoogleApiClient client, TodayWeather today) {
+        String highString = Utility.formatTemperature(context, today.high);
+        String lowString = Utility.formatTemperature(context, today.low);
+        int iconIndex = WearIconAtlas.getIconIndex(today.weatherId);
+        ForecastPayload forecastPayload = ForecastPayload.query(context);
+        byte[] forecast = forecastPayload == null ? null : forecastPayload.encode();
+
+        if (!WearIconAtlas.isPublished(context) && !WearIconAtlas.publish(context, client)) {
+            return false;
+        }
+
+        String contentHash = getContentHash(highString, lowString, today.weatherId, iconIndex,
+                forecast);
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (contentHash.equals(prefs.getString(PREF_LAST_PUBLISHED, null))) {
+            Log.d(LOG_TAG, "Wearable already has this weather");
+        } else {
+            PutDataMapRequest dataMap =
+                    PutDataMapRequest.create(AppConstants.PATH_WEATHER_UPDATE);
+            dataMap.getDataMap().putInt(AppConstants.KEY_WEATHER_ID, today.weatherId);
+            dataMap.getDataMap().putInt(AppConstants.KEY_ICON_INDEX, iconIndex);
+            dataMap.getDataMap().putInt(AppConstants.KEY_ICON_ATLAS_VERSION,
+                    WearIconAtlas.VERSION);
+            dataMap.getDataMap().putString(AppConstants.KEY_HIGH_TEMPERATURE, highString);
+            dataMap.getDataMap().putString(AppConstants.KEY_LOW_TEMPERATURE, lowString);
+            if (forecast != null) {
+                dataMap.getDataMap().putByteArray(AppConstants.KEY_FORECAST, forecast);
+            }
+            PutDataRequest request = dataMap.asPutDataRequest();
+            DataApi.DataItemResult result = Wearable.DataApi.putDataItem(client, request)
+                    .await(CONNECT_TIMEOUT_S, TimeUnit.SECONDS);
+            boolean success = result.getStatus().isSuccess();
+            Log.d(LOG_TAG, "Sending weather was successful: " + success);
+            if (!success) {
+                return false;
+            }
+            prefs.edit().putString(PREF_LAST_PUBLISHED, contentHash).apply();
+        }
+        return sendFreshness(client);
+    }
+
+    /**
+     * Tells the connected watches when the weather was last confirmed and by when the next
+     * sync runs.  Messages aren't kept by the Data Layer, a watch that misses it asks later.
+     */
+    private static boolean sendFreshness(GoogleApiClient client) {
+        long now = new Date().getTime();
+        // The latest the next periodic sync runs, the watch doesn't ask before then
+        long nextSync = now + TimeUnit.SECONDS.toMillis(
+                SunshineSyncAdapter.SYNC_INTERVAL + SunshineSyncAdapter.SYNC_FLEXTIME);
+        byte[] message = ByteBuffer.allocate(FRESHNESS_BYTES).putLong(now).putLong(nextSync)
+                .array();
+
+        NodeApi.GetConnectedNodesResult nodes = Wearable.NodeApi.getConnectedNodes(client)
+                .await(CONNECT_TIMEOUT_S, TimeUnit.SECONDS);
+        boolean success = nodes.getStatus().isSuccess();
+        if (success) {
+            for (Node node : nodes.getNodes()) {
+                MessageApi.SendMessageResult result = Wearable.MessageApi.sendMessage(client,
+                        node.getId(), AppConstants.PATH_WEATHER_FRESHNESS, message)
+                        .await(CONNECT_TIMEOUT_S, TimeUnit.SECONDS);
+                success &= result.getStatus().isSuccess();
+            }
+        }
+        Log.d(LOG_TAG, "Sending freshness was successful: " + success);
+        return success;
+    }
+
+    /**
+     * @return a hex SHA-1 over everything the DataItem holds
+     */
+    static String getContentHash(String highString, String lowString, int weatherId,
+                                 int iconIndex, byte[] forecast) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android has SHA-1
+            throw new IllegalStateException(e);
+        }
+        digest.update((highString + '|' + lowString + '|').getBytes(UTF_8));
+        digest.update(ByteBuffer.allocate(3 * 4)
+                .putInt(weatherId)
+                .putInt(iconIndex)
+                .putInt(WearIconAtlas.VERSION)
+                .array());
+        if (forecast != null) {
+            digest.update(forecast);
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+}
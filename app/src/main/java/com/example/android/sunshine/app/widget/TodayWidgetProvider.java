@@ -47,7 +47,9 @@ public class TodayWidgetProvider extends AppWidgetProvider {
     public void onReceive(@NonNull Context context, @NonNull Intent intent) {
         super.onReceive(context, intent);
         if (SunshineSyncAdapter.ACTION_DATA_UPDATED.equals(intent.getAction())) {
-            context.startService(new Intent(context, TodayWidgetIntentService.class));
+            // Pass on today's forecast, if the broadcast carries it
+            context.startService(new Intent(context, TodayWidgetIntentService.class)
+                    .putExtras(intent));
         }
     }
 }
@@ -0,0 +1,102 @@
+package com.example.android.sunshine.app;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * The forecast of the next few days the phone sends along with the weather, decoded.  The
+ * watch picks the day to show by its own clock and formats the temperatures in its own locale.
+ *
+ * Decodes what the phone's ForecastPayload encodes, see there for the layout.
+ */
+public final class ForecastPayload {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 7;
+
+    private static final int FLAG_METRIC = 1;
+    private static final double SCALE = 10;
+
+    public static final class Day {
+        public final int julianDay;
+        public final int weatherId;
+        public final int iconIndex;
+        public final double high;
+        public final double low;
+        public final int humidity;
+        public final double windSpeed;
+        public final int windDegrees;
+
+        Day(int julianDay, int weatherId, int iconIndex, double high, double low, int humidity,
+            double windSpeed, int windDegrees) {
+            this.julianDay = julianDay;
+            this.weatherId = weatherId;
+            this.iconIndex = iconIndex;
+            this.high = high;
+            this.low = low;
+            this.humidity = humidity;
+            this.windSpeed = windSpeed;
+            this.windDegrees = windDegrees;
+        }
+    }
+
+    public final boolean metric;
+    public final Day[] days;
+
+    private ForecastPayload(boolean metric, Day[] days) {
+        this.metric = metric;
+        this.days = days;
+    }
+
+    /**
+     * @return the forecast for a day, or null if the payload doesn't cover it
+     */
+    public Day findDay(int julianDay) {
+        for (Day day : days) {
+            if (day.julianDay == julianDay) {
+                return day;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Formats a temperature in the units the phone is set to.
+     */
+    public String formatTemperature(double celsius) {
+        double temperature = metric ? celsius : celsius * 1.8 + 32;
+        return String.format(Locale.getDefault(), "%1.0f\u00b0", temperature);
+    }
+
+    /**
+     * @return the forecast, or null if the bytes are not a forecast of this format version
+     */
+    public static ForecastPayload decode(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            if (buffer.get() != FORMAT_VERSION) {
+                return null;
+            }
+            boolean metric = (buffer.get() & FLAG_METRIC) != 0;
+            Day[] days = new Day[buffer.get() & 0xff];
+            int firstJulianDay = buffer.getInt();
+            for (int i = 0; i < days.length; i++) {
+                days[i] = new Day(firstJulianDay + (buffer.get() & 0xff),
+                        buffer.getShort(),
+                        buffer.get(),
+                        buffer.getShort() / SCALE,
+                        buffer.getShort() / SCALE,
+                        buffer.get() & 0xff,
+                        buffer.getShort() / SCALE,
+                        buffer.getShort());
+            }
+            return new ForecastPayload(metric, days);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+}
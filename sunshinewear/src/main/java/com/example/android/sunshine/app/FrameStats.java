@@ -0,0 +1,100 @@
+package com.example.android.sunshine.app;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Measures how long the watch face takes to draw a frame and how many objects it allocates
+ * doing so, and logs a summary every few frames.
+ *
+ * Off by default, turn it on with {@code adb shell setprop log.tag.WatchFaceFrames DEBUG}
+ * and make the watch face visible again.  Allocation counting slows down every allocation in
+ * the process, so it only runs while some FrameStats is enabled.
+ */
+class FrameStats {
+
+    static final String LOG_TAG = "WatchFaceFrames";
+
+    // Allocation counting is one switch for the whole process, shared by every FrameStats
+    private static int sAllocCountingUsers;
+
+    private final String mName;
+    private final int mReportEveryFrames;
+    private boolean mEnabled;
+
+    private long mFrameStartNanos;
+    private int mFrameStartAllocations;
+
+    private int mFrames;
+    private long mTotalNanos;
+    private long mMaxNanos;
+    private long mAllocations;
+
+    FrameStats(String name, int reportEveryFrames) {
+        mName = name;
+        mReportEveryFrames = reportEveryFrames;
+    }
+
+    static boolean isRequested() {
+        return Log.isLoggable(LOG_TAG, Log.DEBUG);
+    }
+
+    void setEnabled(boolean enabled) {
+        if (enabled == mEnabled) {
+            return;
+        }
+        mEnabled = enabled;
+        reset();
+        if (enabled) {
+            startAllocCounting();
+        } else {
+            stopAllocCounting();
+        }
+    }
+
+    void beginFrame() {
+        if (!mEnabled) {
+            return;
+        }
+        mFrameStartAllocations = Debug.getThreadAllocCount();
+        mFrameStartNanos = SystemClock.elapsedRealtimeNanos();
+    }
+
+    void endFrame() {
+        if (!mEnabled) {
+            return;
+        }
+        long nanos = SystemClock.elapsedRealtimeNanos() - mFrameStartNanos;
+        mAllocations += Debug.getThreadAllocCount() - mFrameStartAllocations;
+        mFrames++;
+        mTotalNanos += nanos;
+        mMaxNanos = Math.max(mMaxNanos, nanos);
+        if (mFrames == mReportEveryFrames) {
+            // Only now, so building the message isn't counted
+            Log.d(LOG_TAG, mName + ": " + mFrames + " frames, avg "
+                    + mTotalNanos / mFrames / 1000 + "us, max " + mMaxNanos / 1000 + "us, "
+                    + (float) mAllocations / mFrames + " allocations per frame");
+            reset();
+        }
+    }
+
+    private static synchronized void startAllocCounting() {
+        if (sAllocCountingUsers++ == 0) {
+            Debug.startAllocCounting();
+        }
+    }
+
+    private static synchronized void stopAllocCounting() {
+        if (--sAllocCountingUsers == 0) {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private void reset() {
+        mFrames = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+        mAllocations = 0;
+    }
+}
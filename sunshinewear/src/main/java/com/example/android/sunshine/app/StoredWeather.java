@@ -0,0 +1,193 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.text.format.DateUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.android.sunshine.app.constants.AppConstants;
+import com.google.android.gms.wearable.DataMap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The last weather the phone sent, kept in a small binary file so the watch face shows it in
+ * its first frame, even when the phone can't be reached.
+ *
+ * The file is written by {@link SunshineWatchFaceListenerService} whenever new weather arrives
+ * and read once when the watch face engine is created.  The phone sends the weather and its
+ * freshness apart, the weather only when it changed, so both are merged here.
+ */
+public final class StoredWeather {
+
+    private static final String LOG_TAG = StoredWeather.class.getSimpleName();
+
+    private static final String FILE_NAME = "weather.bin";
+    // Bump when the layout of the file changes, older files are then ignored
+    private static final int FORMAT_VERSION = 3;
+
+    /**
+     * The phone syncs every three hours, weather older than a missed sync is worth asking for.
+     */
+    static final long STALE_AFTER_MS = 4 * DateUtils.HOUR_IN_MILLIS;
+
+    public final String highTemperature;
+    public final String lowTemperature;
+    public final int weatherId;
+    public final int iconIndex;
+    public final int iconAtlasVersion;
+    // When the phone last confirmed it, on the phone's clock, 0 if not known
+    public final long timestamp;
+    // By when the phone's next sync should have happened, 0 if the phone didn't say
+    public final long nextSync;
+    // The encoded ForecastPayload, null if the phone sent none
+    public final byte[] forecast;
+
+    public StoredWeather(String highTemperature, String lowTemperature, int weatherId,
+                         int iconIndex, int iconAtlasVersion, long timestamp, long nextSync,
+                         byte[] forecast) {
+        this.highTemperature = highTemperature;
+        this.lowTemperature = lowTemperature;
+        this.weatherId = weatherId;
+        this.iconIndex = iconIndex;
+        this.iconAtlasVersion = iconAtlasVersion;
+        this.timestamp = timestamp;
+        this.nextSync = nextSync;
+        this.forecast = forecast;
+    }
+
+    /**
+     * @param timestamp when the phone last confirmed the weather, the DataItem doesn't say
+     * @param nextSync by when the phone's next sync should have happened, 0 if not known
+     */
+    public static StoredWeather fromDataMap(DataMap dataMap, long timestamp, long nextSync) {
+        return new StoredWeather(
+                dataMap.getString(AppConstants.KEY_HIGH_TEMPERATURE),
+                dataMap.getString(AppConstants.KEY_LOW_TEMPERATURE),
+                dataMap.getInt(AppConstants.KEY_WEATHER_ID),
+                dataMap.getInt(AppConstants.KEY_ICON_INDEX, -1),
+                dataMap.getInt(AppConstants.KEY_ICON_ATLAS_VERSION),
+                timestamp,
+                nextSync,
+                dataMap.getByteArray(AppConstants.KEY_FORECAST));
+    }
+
+    /**
+     * @return the same weather, confirmed by the phone at timestamp
+     */
+    public StoredWeather withFreshness(long timestamp, long nextSync) {
+        return new StoredWeather(highTemperature, lowTemperature, weatherId, iconIndex,
+                iconAtlasVersion, timestamp, nextSync, forecast);
+    }
+
+    /**
+     * Puts the weather in the extras of the broadcast that tells the watch face about it.
+     */
+    public Intent putTo(Intent intent) {
+        return intent.putExtra(AppConstants.KEY_HIGH_TEMPERATURE, highTemperature)
+                .putExtra(AppConstants.KEY_LOW_TEMPERATURE, lowTemperature)
+                .putExtra(AppConstants.KEY_WEATHER_ID, weatherId)
+                .putExtra(AppConstants.KEY_ICON_INDEX, iconIndex)
+                .putExtra(AppConstants.KEY_ICON_ATLAS_VERSION, iconAtlasVersion)
+                .putExtra(AppConstants.KEY_TIMESTAMP, timestamp)
+                .putExtra(AppConstants.KEY_NEXT_SYNC, nextSync)
+                .putExtra(AppConstants.KEY_FORECAST, forecast);
+    }
+
+    public static StoredWeather fromIntent(Intent intent) {
+        return new StoredWeather(
+                intent.getStringExtra(AppConstants.KEY_HIGH_TEMPERATURE),
+                intent.getStringExtra(AppConstants.KEY_LOW_TEMPERATURE),
+                intent.getIntExtra(AppConstants.KEY_WEATHER_ID, 0),
+                intent.getIntExtra(AppConstants.KEY_ICON_INDEX, -1),
+                intent.getIntExtra(AppConstants.KEY_ICON_ATLAS_VERSION, 0),
+                intent.getLongExtra(AppConstants.KEY_TIMESTAMP, 0),
+                intent.getLongExtra(AppConstants.KEY_NEXT_SYNC, 0),
+                intent.getByteArrayExtra(AppConstants.KEY_FORECAST));
+    }
+
+    /**
+     * @return the stored weather, or null if there is none
+     */
+    public static StoredWeather read(Context context) {
+        AtomicFile file = getFile(context);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(file.openRead());
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            String highTemperature = in.readUTF();
+            String lowTemperature = in.readUTF();
+            int weatherId = in.readInt();
+            int iconIndex = in.readInt();
+            int iconAtlasVersion = in.readInt();
+            long timestamp = in.readLong();
+            long nextSync = in.readLong();
+            byte[] forecast = null;
+            int forecastLength = in.readInt();
+            if (forecastLength > 0) {
+                forecast = new byte[forecastLength];
+                in.readFully(forecast);
+            }
+            return new StoredWeather(highTemperature, lowTemperature, weatherId, iconIndex,
+                    iconAtlasVersion, timestamp, nextSync, forecast);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Failed to read the stored weather", e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    public void write(Context context) {
+        if (highTemperature == null || lowTemperature == null) {
+            return;
+        }
+        AtomicFile file = getFile(context);
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(highTemperature);
+            out.writeUTF(lowTemperature);
+            out.writeInt(weatherId);
+            out.writeInt(iconIndex);
+            out.writeInt(iconAtlasVersion);
+            out.writeLong(timestamp);
+            out.writeLong(nextSync);
+            if (forecast != null) {
+                out.writeInt(forecast.length);
+                out.write(forecast);
+            } else {
+                out.writeInt(0);
+            }
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Failed to store the weather", e);
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    private static AtomicFile getFile(Context context) {
+        return new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+}
@@ -1,9 +1,7 @@
 package com.example.android.sunshine.app;
 
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.v4.content.LocalBroadcastManager;
 import android.util.Log;
 
@@ -11,37 +9,55 @@ import com.example.android.sunshine.app.constants.AppConstants;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.data.FreezableUtils;
-import com.google.android.gms.wearable.Asset;
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.DataItem;
 import com.google.android.gms.wearable.DataMap;
 import com.google.android.gms.wearable.DataMapItem;
+import com.google.android.gms.wearable.MessageEvent;
 import com.google.android.gms.wearable.Wearable;
 import com.google.android.gms.wearable.WearableListenerService;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
-public class SunshineWatchFaceListenerService extends WearableListenerService implements GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener{
+/**
+ * Hands the weather the phone publishes to the watch face, along with the freshness the phone
+ * sends after every sync.
+ *
+ * Assets are copied in the listener callback, which already runs on a worker thread, since the
+ * service is unbound as soon as the callback returns.  One client is connected on the first
+ * atlas and kept until the service goes away.
+ */
+public class SunshineWatchFaceListenerService extends WearableListenerService {
 
-    private GoogleApiClient mGoogleApiClient;
     private static final String LOG_TAG = "WatchFaceListener";
     private static final int TIMEOUT_S = 30;
+    // Two longs: when the phone confirmed the weather and by when its next sync runs
+    private static final int FRESHNESS_BYTES = 2 * 8;
+
+    private GoogleApiClient mGoogleApiClient;
+
+    // Icon atlas metrics for as long as the process lives, logged after each atlas
+    private static int sAtlasesStored;
+    private static int sAtlasesUnchanged;
+    private static int sAtlasesFailed;
+    private static long sMaxAtlasMillis;
 
     @Override
     public void onCreate() {
         super.onCreate();
 
-        if (mGoogleApiClient == null) {
-            mGoogleApiClient = new GoogleApiClient.Builder(this)
-                    .addConnectionCallbacks(this)
-                    .addOnConnectionFailedListener(this)
-                    .addApi(Wearable.API)
-                    .build();
-        }
+        mGoogleApiClient = new GoogleApiClient.Builder(this)
+                .addApi(Wearable.API)
+                .build();
+    }
+
+    @Override
+    public void onDestroy() {
+        mGoogleApiClient.disconnect();
+        super.onDestroy();
     }
 
     @Override
@@ -59,110 +75,89 @@ public class SunshineWatchFaceListenerService extends WearableListenerService im
         //Reference: https://www.binpress.com/tutorial/a-guide-to-the-android-wear-message-api/152
         DataItem item = event.getDataItem();
         DataMap dataMap = DataMapItem.fromDataItem(item).getDataMap();
-        if (item.getUri().getPath().compareTo(AppConstants.PATH_WEATHER_UPDATE) == 0) {
-            // get updated weather data from dataMap
-            String highTemperature = dataMap.getString(AppConstants.KEY_HIGH_TEMPERATURE);
-            String lowTemperature = dataMap.getString(AppConstants.KEY_LOW_TEMPERATURE);
-            Asset weatherIconAsset = dataMap.getAsset(AppConstants.KEY_WEATHER_ICON);
-            Bitmap weatherIcon = assetToBitmap(weatherIconAsset);
-            // Broadcast message to wearable activity for display
-            Intent messageIntent = new Intent(AppConstants.WEATHER_UPDATE_BROADCAST);
-            // set icon if available
-            if (weatherIcon != null)
-                messageIntent.putExtra(AppConstants.KEY_WEATHER_ICON, weatherIcon);
-            // set high and low temperatures
-            messageIntent.putExtra(AppConstants.KEY_HIGH_TEMPERATURE, highTemperature);
-            messageIntent.putExtra(AppConstants.KEY_LOW_TEMPERATURE, lowTemperature);
-            // broadcast message, the data will be received by the watchface service
-            LocalBroadcastManager.getInstance(this).sendBroadcast(messageIntent);
+        String path = item.getUri().getPath();
+        if (AppConstants.PATH_WEATHER_UPDATE.equals(path)) {
+            // The freshness comes in its own message, on the phone's clock.  Until it does the
+            // weather keeps whatever the phone last confirmed, 0 if it never did, so the
+            // message can always be compared with what is stored
+            StoredWeather stored = StoredWeather.read(this);
+            long timestamp = stored == null ? 0 : stored.timestamp;
+            long nextSync = stored == null ? 0 : stored.nextSync;
+            // the icon is a cell of the atlas, nothing to decode here
+            updateWeather(StoredWeather.fromDataMap(dataMap, timestamp, nextSync));
+        } else if (AppConstants.PATH_ICON_ATLAS.equals(path)) {
+            saveIconAtlas(dataMap);
         }
     }
 
-    private Bitmap assetToBitmap(Asset weatherIconAsset){
-        Bitmap weatherIcon = null;
-        try{
-            weatherIcon = loadByteArrayFromInputStream(weatherIconAsset);
-        } catch (InterruptedException ie){
-            Log.d(LOG_TAG, "Interrupted " + ie.getMessage());
-        }
-        return weatherIcon;
-    }
-
-    private Bitmap loadByteArrayFromInputStream(Asset asset) throws InterruptedException {
-        //Reference: http://stackoverflow.com/a/9148954
-        BitmapWorker bitmapWorker = new BitmapWorker(asset);
-        Thread thread = new Thread(bitmapWorker);
-        thread.start();
-        //wait until thread executed
-        thread.join();
-        return bitmapWorker.getBitmap();
-    }
-
     @Override
-    public void onConnected(Bundle bundle) {
-        Wearable.DataApi.addListener(mGoogleApiClient, this);
-        Wearable.MessageApi.addListener(mGoogleApiClient, this);
+    public void onMessageReceived(MessageEvent messageEvent) {
+        if (!AppConstants.PATH_WEATHER_FRESHNESS.equals(messageEvent.getPath())) {
+            return;
+        }
+        byte[] message = messageEvent.getData();
+        StoredWeather stored = StoredWeather.read(this);
+        if (message == null || message.length < FRESHNESS_BYTES || stored == null) {
+            // Without weather there is nothing fresh, the watch face reads the DataItem
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        // Both come from the phone's clock, as does the stored timestamp; keep the newer of each
+        // in case messages arrive out of order
+        long timestamp = Math.max(buffer.getLong(), stored.timestamp);
+        long nextSync = Math.max(buffer.getLong(), stored.nextSync);
+        if (timestamp != stored.timestamp || nextSync != stored.nextSync) {
+            updateWeather(stored.withFreshness(timestamp, nextSync));
+        }
     }
 
-    @Override
-    public void onConnectionSuspended(int i) {
-        //Empty
+    private void updateWeather(StoredWeather weather) {
+        // kept for the next time the watch face starts
+        weather.write(this);
+        // broadcast message, the data will be received by the watchface service
+        LocalBroadcastManager.getInstance(this).sendBroadcast(
+                weather.putTo(new Intent(AppConstants.WEATHER_UPDATE_BROADCAST)));
     }
 
-    @Override
-    public void onConnectionFailed(ConnectionResult connectionResult) {
-        //Empty
+    private void saveIconAtlas(DataMap dataMap) {
+        long startedAt = SystemClock.elapsedRealtime();
+        int result = connect()
+                ? WeatherIconAtlas.save(this, mGoogleApiClient, dataMap)
+                : WeatherIconAtlas.SAVE_FAILED;
+        long tookMillis = SystemClock.elapsedRealtime() - startedAt;
+        switch (result) {
+            case WeatherIconAtlas.SAVE_STORED:
+                sAtlasesStored++;
+                LocalBroadcastManager.getInstance(this)
+                        .sendBroadcast(new Intent(AppConstants.ICON_ATLAS_UPDATE_BROADCAST));
+                break;
+            case WeatherIconAtlas.SAVE_UNCHANGED:
+                sAtlasesUnchanged++;
+                break;
+            default:
+                sAtlasesFailed++;
+        }
+        sMaxAtlasMillis = Math.max(sMaxAtlasMillis, tookMillis);
+        Log.d(LOG_TAG, "Icon atlas handled in " + tookMillis + "ms; stored " + sAtlasesStored
+                + ", unchanged " + sAtlasesUnchanged + ", failed " + sAtlasesFailed
+                + ", max " + sMaxAtlasMillis + "ms");
     }
 
     /**
-     *  The following class combines ideas from a couple of resources (cited in code). Ultimately it uses a callback
-     *  to deliver the result of the worker thread tasked with converting Asset to Bitmap.
+     * Connects the service's client unless it already is.  Blocks, call it from a callback.
      */
-    public class BitmapWorker implements Runnable {
-        private volatile Bitmap bitmap;
-        private Asset asset;
-
-        BitmapWorker(Asset asset){
-            this.asset = asset;
-        }
-
-        @Override
-        public void run(){
-
-            if (asset == null) {
-                Log.d(LOG_TAG, "Asset is null");
-                return;
-            }
-            // Reference: http://developer.android.com/training/wearables/data-layer/assets.html
-            mGoogleApiClient = new GoogleApiClient.Builder(SunshineWatchFaceListenerService.this)
-                    .addApi(Wearable.API)
-                    .addConnectionCallbacks(SunshineWatchFaceListenerService.this)
-                    .addOnConnectionFailedListener(SunshineWatchFaceListenerService.this)
-                    .build();
-
-            ConnectionResult connectionResult =
-                    mGoogleApiClient.blockingConnect(TIMEOUT_S, TimeUnit.SECONDS);
-
-            if (!connectionResult.isSuccess()) {
-                Log.e(LOG_TAG, "Failed to connect to GoogleApiClient.");
-                return;
-            }
-            // convert asset into a file descriptor and block until it's ready
-            InputStream assetInputStream = Wearable.DataApi.getFdForAsset(
-                    mGoogleApiClient, asset).await().getInputStream();
-
-            mGoogleApiClient.disconnect();
-
-            if (assetInputStream == null) {
-                Log.w(LOG_TAG, "Requested an unknown Asset.");
-                return;
-            }
-            // decode the stream into a bitmap
-            bitmap =  BitmapFactory.decodeStream(assetInputStream);
+    private boolean connect() {
+        if (mGoogleApiClient.isConnected()) {
+            return true;
         }
-
-        public Bitmap getBitmap() {
-            return bitmap;
+        // Reference: http://developer.android.com/training/wearables/data-layer/assets.html
+        ConnectionResult connectionResult =
+                mGoogleApiClient.blockingConnect(TIMEOUT_S, TimeUnit.SECONDS);
+        if (!connectionResult.isSuccess()) {
+            Log.e(LOG_TAG, "Failed to connect to GoogleApiClient: "
+                    + connectionResult.getErrorCode());
+            return false;
         }
+        return true;
     }
 }
@@ -27,12 +27,15 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.support.v4.content.LocalBroadcastManager;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
+import android.text.format.DateUtils;
 import android.text.format.Time;
 import android.util.Log;
 import android.view.SurfaceHolder;
@@ -40,8 +43,12 @@ import android.view.WindowInsets;
 
 import com.example.android.sunshine.app.constants.AppConstants;
 import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.DataMapItem;
 import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.NodeApi;
+import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 
 import java.lang.ref.WeakReference;
@@ -52,6 +59,10 @@ import java.util.concurrent.TimeUnit;
 /**
  * Digital watch face with seconds. In ambient mode, the seconds aren't displayed. On devices with
  * low-bit ambient mode, the text is drawn without anti-aliasing in ambient mode.
+ *
+ * Ambient mode has a pipeline of its own: a black background, the time and the weather drawn
+ * with paints set up for it in advance, and a 1-bit variant of the icons.  With burn-in
+ * protection the icon is left out and everything moves by a few pixels every minute.
  */
 public class SunshineWatchFaceService extends CanvasWatchFaceService {
 
@@ -68,15 +79,28 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
      */
     private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
 
-    // request weather data every 30 minutes
-    private static final long WEATHER_UPDATE_RATE_MS = TimeUnit.MINUTES.toMillis(30);
-
     /**
      * Handler message id for updating the time periodically in interactive mode.
      */
     private static final int MSG_UPDATE_TIME = 0;
-    private static final int MSG_UPDATE_WEATHER = 1;
 
+    private static final int BENCHMARK_WARM_UP_FRAMES = 10;
+    private static final int BENCHMARK_FRAMES = 100;
+
+    private static final int INTERACTIVE_STATS_FRAMES = 60;
+    // Ambient draws once a minute
+    private static final int AMBIENT_STATS_FRAMES = 10;
+
+    /**
+     * "00" to "59", so drawing the time doesn't format a String every frame.
+     */
+    private static final char[][] TWO_DIGITS = new char[60][];
+
+    static {
+        for (int i = 0; i < TWO_DIGITS.length; i++) {
+            TWO_DIGITS[i] = new char[]{(char) ('0' + i / 10), (char) ('0' + i % 10)};
+        }
+    }
 
     @Override
     public Engine onCreateEngine() {
@@ -88,7 +112,14 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
 
         private String mHighTemperature;
         private String mLowTemperature;
-        private Bitmap mWeatherIcon;
+        private int mWeatherIconIndex = -1;
+        private int mWeatherIconAtlasVersion;
+        private long mWeatherTimestamp;
+        private final WeatherRefreshScheduler mRefreshScheduler = new WeatherRefreshScheduler();
+        private ForecastPayload mForecast;
+        private int mForecastJulianDay;
+        private WeatherIconAtlas mIconAtlas;
+        private WeatherIconAtlas mAmbientIconAtlas;
 
         boolean mRegisteredTimeZoneReceiver = false;
         boolean mRegisteredWeatherReceiver = false;
@@ -101,12 +132,34 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
         Paint mTemperatureHighTextPaint;
         Paint mTemperatureLowTextPaint;
 
+        Paint mAmbientHoursTextPaint;
+        Paint mAmbientMinutesTextPaint;
+        Paint mAmbientTemperatureHighTextPaint;
+        Paint mAmbientTemperatureLowTextPaint;
+        float mBurnInShift;
+
         String mLogoText;
         Paint mLogoTextPaint;
 
         boolean mAmbient;
 
-        Time mTime;
+        // The time is worked out from the clock and the zone offset, which only needs a lookup
+        // once a minute, so a frame doesn't allocate
+        TimeZone mTimeZone;
+        long mZoneOffsetMs;
+        long mZoneOffsetValidUntilMs;
+        int mHour;
+        int mMinute;
+
+        final FrameStats mFrameStats = new FrameStats("interactive", INTERACTIVE_STATS_FRAMES);
+        final FrameStats mAmbientFrameStats = new FrameStats("ambient", AMBIENT_STATS_FRAMES);
+        boolean mBenchmarkPending;
+
+        // Background, logo and weather, drawn once into a bitmap each frame starts from
+        boolean mLayered = true;
+        Bitmap mStaticLayer;
+        Canvas mStaticLayerCanvas;
+        boolean mStaticLayerDirty = true;
 
         float mWeatherTextYOffset;
         float mWeatherIconYOffset;
@@ -124,15 +177,18 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
          */
         boolean mLowBitAmbient;
 
-        private GoogleApiClient mGoogleApiClient;
-        private String nodeId;
+        /**
+         * Whether the display can burn in.  When true, ambient mode leaves out the icon and
+         * shifts what it draws.
+         */
+        boolean mBurnInProtection;
+
         private static final long CONNECTION_TIME_OUT_MS = 500;
 
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mTime.clear(intent.getStringExtra("time-zone"));
-                mTime.setToNow();
+                setTimeZone(TimeZone.getTimeZone(intent.getStringExtra("time-zone")));
             }
         };
 
@@ -141,18 +197,13 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             public void onReceive(Context context, Intent intent) {
                 // Reference 1: http://android-wear-docs.readthedocs.org
                 // Reference 2: http://stackoverflow.com/a/8875292
-                String highTemperature = intent.getStringExtra(AppConstants.KEY_HIGH_TEMPERATURE);
-                String lowTemperature = intent.getStringExtra(AppConstants.KEY_LOW_TEMPERATURE);
-                if (highTemperature != null && lowTemperature != null){
-                    mHighTemperature = highTemperature;
-                    mLowTemperature = lowTemperature;
-                }
-
-                if (intent.hasExtra(AppConstants.KEY_WEATHER_ICON)) {
-                    Bitmap weatherIconByteArray = intent.getParcelableExtra(AppConstants.KEY_WEATHER_ICON);
-                    if (weatherIconByteArray != null)
-                        mWeatherIcon = weatherIconByteArray;
+                if (AppConstants.ICON_ATLAS_UPDATE_BROADCAST.equals(intent.getAction())) {
+                    loadIconAtlas();
+                    invalidateStaticLayer();
+                    invalidate();
+                    return;
                 }
+                setWeather(StoredWeather.fromIntent(intent));
                 // redraw watchface with updated data
                 invalidate();
             }
@@ -190,20 +241,46 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             mTemperatureHighTextPaint = createTemperatureHighTextPaint(resources);
             mTemperatureLowTextPaint = createTemperatureLowTextPaint(resources);
 
+            // ambient display
+            mAmbientHoursTextPaint = createAmbientTextPaint(
+                    resources.getColor(R.color.time_hours_text_ambient),
+                    resources.getDimension(R.dimen.time_text_size));
+            mAmbientMinutesTextPaint = createAmbientTextPaint(
+                    resources.getColor(R.color.time_minutes_text),
+                    resources.getDimension(R.dimen.time_text_size));
+            mAmbientTemperatureHighTextPaint = createAmbientTextPaint(
+                    resources.getColor(R.color.temperature_high),
+                    resources.getDimension(R.dimen.temperature_text_size));
+            mAmbientTemperatureLowTextPaint = createAmbientTextPaint(
+                    resources.getColor(R.color.temperature_low),
+                    resources.getDimension(R.dimen.temperature_text_size));
+            mBurnInShift = resources.getDimension(R.dimen.burn_in_shift);
+
             // In order to make text in the center, we need adjust its position
             mTextTimeYOffset = (mTimeHoursTextPaint.ascent() + mTimeHoursTextPaint.descent()) / 2;
 
-            mTime = new Time();
+            setTimeZone(TimeZone.getDefault());
+
+            // A few hundred bytes, the phone sent it once and it is kept on the watch
+            loadIconAtlas();
+
+            // What the phone sent last, so the first frame has weather
+            setWeather(StoredWeather.read(SunshineWatchFaceService.this));
 
-            requestWeatherData();
-            //sMSP_UPDATE_WEATHER describes process which requests weather data every n time period
-            mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_WEATHER);
+            // The phone pushes new weather after each sync, we only need to ask for what we
+            // missed while the watch face wasn't running
+            maybeRequestWeatherData();
         }
 
         @Override
         public void onDestroy() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_WEATHER);
+            mFrameStats.setEnabled(false);
+            mAmbientFrameStats.setEnabled(false);
+            if (mStaticLayer != null) {
+                mStaticLayer.recycle();
+                mStaticLayer = null;
+            }
             super.onDestroy();
         }
 
@@ -252,6 +329,15 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             return paint;
         }
 
+        private Paint createAmbientTextPaint(int color, float textSize) {
+            Paint paint = new Paint();
+            paint.setColor(color);
+            paint.setTypeface(NORMAL_TYPEFACE);
+            paint.setAntiAlias(true);
+            paint.setTextSize(textSize);
+            return paint;
+        }
+
         private Paint createLogoPaint(Resources resources) {
             Paint paint = new Paint();
             paint.setColor(resources.getColor(R.color.logo));
@@ -268,15 +354,28 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             if (visible) {
                 registerReceiver();
 
-                //if we don't have weather data yet, otherwise rely on Handler to periodically request data
-                if (mHighTemperature == null || mLowTemperature == null)
-                    requestWeatherData();
+                // the receiver was off, pick up what arrived in the meantime
+                setWeather(StoredWeather.read(SunshineWatchFaceService.this));
+                //if we don't have fresh weather data, otherwise rely on the phone to push it
+                maybeRequestWeatherData();
+                // the atlas may have changed while the receiver was off
+                if (mIconAtlas == null || mIconAtlas.getVersion() != mWeatherIconAtlasVersion)
+                    loadIconAtlas();
+                invalidateStaticLayer();
 
                 // Update time zone in case it changed while we weren't visible.
-                mTime.clear(TimeZone.getDefault().getID());
-                mTime.setToNow();
+                setTimeZone(TimeZone.getDefault());
+                showForecastDay();
+
+                boolean frameStats = FrameStats.isRequested();
+                mBenchmarkPending = frameStats;
+                mFrameStats.setEnabled(frameStats);
+                mAmbientFrameStats.setEnabled(frameStats);
             } else {
                 unregisterReceiver();
+                // Nothing is drawn, so nothing to measure until the face is visible again
+                mFrameStats.setEnabled(false);
+                mAmbientFrameStats.setEnabled(false);
             }
 
             // Whether the timer should be running depends on whether we're visible (as well as
@@ -293,8 +392,10 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
 
             if (!mRegisteredWeatherReceiver) {
                 mRegisteredWeatherReceiver = true;
+                IntentFilter filter = new IntentFilter(AppConstants.WEATHER_UPDATE_BROADCAST);
+                filter.addAction(AppConstants.ICON_ATLAS_UPDATE_BROADCAST);
                 LocalBroadcastManager.getInstance(SunshineWatchFaceService.this).registerReceiver(mWeatherReceiver,
-                        new IntentFilter(AppConstants.WEATHER_UPDATE_BROADCAST));
+                        filter);
             }
         }
 
@@ -319,17 +420,106 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             //Reference: http://stackoverflow.com/a/13578847
             mTextHighTemperatureXOffset = mTemperatureHighTextPaint.measureText(AppConstants.TEMPERATURE_TEXT_PLACEHOLDER);
             mLogoXOffset = mLogoTextPaint.measureText(mLogoText)/2;
+            invalidateStaticLayer();
         }
 
         @Override
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            // Only the ambient paints depend on it, set once here rather than on every switch
+            // to ambient
+            if (mLowBitAmbient) {
+                setAmbientLowBitColors();
+            }
+            mAmbientHoursTextPaint.setAntiAlias(!mLowBitAmbient);
+            mAmbientMinutesTextPaint.setAntiAlias(!mLowBitAmbient);
+            mAmbientTemperatureHighTextPaint.setAntiAlias(!mLowBitAmbient);
+            mAmbientTemperatureLowTextPaint.setAntiAlias(!mLowBitAmbient);
+        }
+
+        private void setAmbientLowBitColors() {
+            // A low-bit display has no grays
+            mAmbientHoursTextPaint.setColor(Color.WHITE);
+            mAmbientMinutesTextPaint.setColor(Color.WHITE);
+            mAmbientTemperatureHighTextPaint.setColor(Color.WHITE);
+            mAmbientTemperatureLowTextPaint.setColor(Color.WHITE);
+        }
+
+        private void setWeather(StoredWeather weather) {
+            if (weather == null || weather.highTemperature == null
+                    || weather.lowTemperature == null || weather.timestamp < mWeatherTimestamp) {
+                return;
+            }
+            mHighTemperature = weather.highTemperature;
+            mLowTemperature = weather.lowTemperature;
+            mWeatherIconIndex = weather.iconIndex;
+            mWeatherIconAtlasVersion = weather.iconAtlasVersion;
+            mWeatherTimestamp = weather.timestamp;
+            mRefreshScheduler.onWeather(weather.timestamp, weather.nextSync);
+            mForecast = ForecastPayload.decode(weather.forecast);
+            mForecastJulianDay = 0;
+            showForecastDay();
+            invalidateStaticLayer();
+        }
+
+        /**
+         * Shows the forecast for the day it is on the watch, so the face moves on at midnight
+         * without waiting for the phone.  Cheap unless the day changed.
+         */
+        private void showForecastDay() {
+            if (mForecast == null) {
+                return;
+            }
+            long nowMs = System.currentTimeMillis();
+            int julianDay = Time.getJulianDay(nowMs, mTimeZone.getOffset(nowMs) / 1000);
+            if (julianDay == mForecastJulianDay) {
+                return;
+            }
+            ForecastPayload.Day day = mForecast.findDay(julianDay);
+            if (day == null) {
+                // The forecast ran out, keep showing the last day until the phone sends more
+                return;
+            }
+            mForecastJulianDay = julianDay;
+            mHighTemperature = mForecast.formatTemperature(day.high);
+            mLowTemperature = mForecast.formatTemperature(day.low);
+            mWeatherIconIndex = day.iconIndex;
+            invalidateStaticLayer();
+        }
+
+        /**
+         * Asks the phone for weather if the {@link WeatherRefreshScheduler} says it is time.
+         */
+        private void maybeRequestWeatherData() {
+            maybeRequestWeatherData(false);
+        }
+
+        /**
+         * @param onTick true for the minute tick, which isn't counted when it doesn't ask
+         */
+        private void maybeRequestWeatherData(boolean onTick) {
+            long nowMs = System.currentTimeMillis();
+            if (onTick
+                    ? mRefreshScheduler.shouldRequestOnTick(nowMs)
+                    : mRefreshScheduler.shouldRequest(nowMs)) {
+                Log.d(LOG_TAG, "Weather requests sent " + mRefreshScheduler.getRequestsSent()
+                        + ", suppressed " + mRefreshScheduler.getRequestsSuppressed());
+                requestWeatherData();
+            }
+        }
+
+        private void loadIconAtlas() {
+            mIconAtlas = WeatherIconAtlas.load(SunshineWatchFaceService.this);
+            mAmbientIconAtlas = mIconAtlas == null ? null : mIconAtlas.createOneBitVariant();
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
+            showForecastDay();
+            maybeRequestWeatherData(true);
             invalidate();
         }
 
@@ -338,12 +528,8 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             super.onAmbientModeChanged(inAmbientMode);
             if (mAmbient != inAmbientMode) {
                 mAmbient = inAmbientMode;
-                if (mLowBitAmbient) {
-                    setAntiAlias(!inAmbientMode);
-                }
-                //if we don't have weather data yet, otherwise rely on Handler to periodically request data
-                if (mHighTemperature == null || mLowTemperature == null)
-                    requestWeatherData();
+                //if we don't have fresh weather data, otherwise rely on the phone to push it
+                maybeRequestWeatherData();
 
                 invalidate();
             }
@@ -353,46 +539,71 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             updateTimer();
         }
 
-        private void setAntiAlias(boolean antiAlias) {
-            mTimeHoursTextPaint.setAntiAlias(antiAlias);
-            mTimeHoursTextPaint.setAntiAlias(antiAlias);
-            mTimeMinutesTextPaint.setAntiAlias(antiAlias);
-            mTimeSecondsTextPaint.setAntiAlias(antiAlias);
-            mTemperatureHighTextPaint.setAntiAlias(antiAlias);
-            mTemperatureLowTextPaint.setAntiAlias(antiAlias);
-        }
-
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            // get current dimensions
-            float width = bounds.width();
-            float height = bounds.height();
-            float centerX = bounds.width() / 2f;
-            float centerY = bounds.height() / 2f;
-            // draw background
-            canvas.drawRect(0, 0, width, height, mBackgroundPaint);
+            if (mBenchmarkPending) {
+                mBenchmarkPending = false;
+                logRenderBenchmark(bounds);
+            }
+            if (mAmbient) {
+                mAmbientFrameStats.beginFrame();
+                drawAmbient(canvas, bounds);
+                mAmbientFrameStats.endFrame();
+                return;
+            }
+            mFrameStats.beginFrame();
+            if (mLayered) {
+                drawLayered(canvas, bounds);
+            } else {
+                drawImmediate(canvas, bounds);
+            }
+            mFrameStats.endFrame();
+        }
 
-            /** Time **/
-            mTime.setToNow();
-            String hours = formatHours(mTime.hour);
-            String minutes = String.format("%02d", mTime.minute);
+        /**
+         * Blits the static layer, rebuilding it first if it is out of date, and draws the time
+         * on top.
+         */
+        private void drawLayered(Canvas canvas, Rect bounds) {
+            int width = bounds.width();
+            int height = bounds.height();
+            if (mStaticLayer == null || mStaticLayer.getWidth() != width
+                    || mStaticLayer.getHeight() != height) {
+                if (mStaticLayer != null) {
+                    mStaticLayer.recycle();
+                }
+                mStaticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                mStaticLayerCanvas = new Canvas(mStaticLayer);
+                mStaticLayerDirty = true;
+            }
+            if (mStaticLayerDirty) {
+                mStaticLayerDirty = false;
+                drawStatic(mStaticLayerCanvas, width, height);
+            }
+            canvas.drawBitmap(mStaticLayer, 0, 0, null);
+            drawTime(canvas, width, height);
+        }
 
-            float timeYOffset = centerY - mTextTimeYOffset;
-            float hoursXOffset = centerX - mTextHoursXOffset;
-            // set color based on context
-            Resources resources = getResources();
-            int hoursColor = mAmbient? resources.getColor(R.color.time_hours_text_ambient) : resources.getColor(R.color.time_hours_text);
-            mTimeHoursTextPaint.setColor(hoursColor);
-            // draw hours
-            canvas.drawText(hours,
-                            hoursXOffset,
-                            timeYOffset,
-                            mTimeHoursTextPaint);
-            // draw minutes
-            canvas.drawText(minutes,
-                            centerX,
-                            timeYOffset,
-                            mTimeMinutesTextPaint);
+        private void drawImmediate(Canvas canvas, Rect bounds) {
+            drawStatic(canvas, bounds.width(), bounds.height());
+            drawTime(canvas, bounds.width(), bounds.height());
+        }
+
+        /**
+         * Call when anything {@link #drawStatic} draws changed.
+         */
+        private void invalidateStaticLayer() {
+            mStaticLayerDirty = true;
+        }
+
+        /**
+         * Draws what only changes with the weather, the insets or the mode: the background, the
+         * logo and the weather block.
+         */
+        private void drawStatic(Canvas canvas, float width, float height) {
+            float centerX = width / 2f;
+            // draw background
+            canvas.drawRect(0, 0, width, height, mBackgroundPaint);
 
             /** Logo **/
             canvas.drawText(mLogoText, centerX - mLogoXOffset, mLogoYOffset, mLogoTextPaint);
@@ -411,10 +622,11 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
                                 centerX,
                         mWeatherTextYOffset,
                                 mTemperatureLowTextPaint);
-                //draw weatherIcon
-                if (mWeatherIcon != null){
-                    float weatherIconXOffset = centerX - mWeatherIcon.getWidth()/2;
-                    canvas.drawBitmap(mWeatherIcon,
+                //draw weatherIcon, unless the atlas it points into didn't arrive yet
+                if (mIconAtlas != null && mIconAtlas.getVersion() == mWeatherIconAtlasVersion){
+                    float weatherIconXOffset = centerX - mIconAtlas.getIconSize() / 2f;
+                    mIconAtlas.draw(canvas,
+                            mWeatherIconIndex,
                             weatherIconXOffset,
                             mWeatherIconYOffset,
                             null);
@@ -422,11 +634,123 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             }
         }
 
-        private String formatHours(int hour){
+        private void drawTime(Canvas canvas, float width, float height) {
+            float centerX = width / 2f;
+            float centerY = height / 2f;
+            updateTime(System.currentTimeMillis());
+
+            float timeYOffset = centerY - mTextTimeYOffset;
+            float hoursXOffset = centerX - mTextHoursXOffset;
+            // draw hours
+            canvas.drawText(TWO_DIGITS[toTwelveHour(mHour)], 0, 2,
+                            hoursXOffset,
+                            timeYOffset,
+                            mTimeHoursTextPaint);
+            // draw minutes
+            canvas.drawText(TWO_DIGITS[mMinute], 0, 2,
+                            centerX,
+                            timeYOffset,
+                            mTimeMinutesTextPaint);
+        }
+
+        /**
+         * Draws the time and the weather in as few primitives as possible, no logo and nothing
+         * cached, since it only runs once a minute.
+         */
+        private void drawAmbient(Canvas canvas, Rect bounds) {
+            canvas.drawColor(Color.BLACK);
+            float centerX = bounds.width() / 2f;
+            float centerY = bounds.height() / 2f;
+            updateTime(System.currentTimeMillis());
+
+            canvas.save();
+            if (mBurnInProtection) {
+                // Walks a 3 by 3 grid, one step a minute, so no pixel stays lit
+                canvas.translate((mMinute % 3 - 1) * mBurnInShift,
+                        (mMinute / 3 % 3 - 1) * mBurnInShift);
+            }
+
+            float timeYOffset = centerY - mTextTimeYOffset;
+            canvas.drawText(TWO_DIGITS[toTwelveHour(mHour)], 0, 2,
+                    centerX - mTextHoursXOffset, timeYOffset, mAmbientHoursTextPaint);
+            canvas.drawText(TWO_DIGITS[mMinute], 0, 2,
+                    centerX, timeYOffset, mAmbientMinutesTextPaint);
+
+            if (mHighTemperature != null && mLowTemperature != null) {
+                canvas.drawText(mHighTemperature, centerX - mTextHighTemperatureXOffset,
+                        mWeatherTextYOffset, mAmbientTemperatureHighTextPaint);
+                canvas.drawText(mLowTemperature, centerX,
+                        mWeatherTextYOffset, mAmbientTemperatureLowTextPaint);
+                if (!mBurnInProtection && mAmbientIconAtlas != null
+                        && mAmbientIconAtlas.getVersion() == mWeatherIconAtlasVersion) {
+                    mAmbientIconAtlas.draw(canvas, mWeatherIconIndex,
+                            centerX - mAmbientIconAtlas.getIconSize() / 2f,
+                            mWeatherIconYOffset, null);
+                }
+            }
+            canvas.restore();
+        }
+
+        /**
+         * Draws the same frame offscreen in the layered and in the immediate mode and logs how
+         * long a frame takes in each.  Runs once when the frame stats are turned on.
+         */
+        private void logRenderBenchmark(Rect bounds) {
+            Bitmap target = Bitmap.createBitmap(bounds.width(), bounds.height(),
+                    Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(target);
+            boolean layered = mLayered;
+            mLayered = true;
+            long layeredNanos = timeFrames(canvas, bounds);
+            mLayered = false;
+            long immediateNanos = timeFrames(canvas, bounds);
+            mLayered = layered;
+            target.recycle();
+            Log.d(FrameStats.LOG_TAG, "Per frame: layered " + layeredNanos / 1000
+                    + "us, immediate " + immediateNanos / 1000 + "us");
+        }
+
+        private long timeFrames(Canvas canvas, Rect bounds) {
+            for (int i = 0; i < BENCHMARK_WARM_UP_FRAMES; i++) {
+                drawBenchmarkFrame(canvas, bounds);
+            }
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < BENCHMARK_FRAMES; i++) {
+                drawBenchmarkFrame(canvas, bounds);
+            }
+            return (SystemClock.elapsedRealtimeNanos() - start) / BENCHMARK_FRAMES;
+        }
+
+        private void drawBenchmarkFrame(Canvas canvas, Rect bounds) {
+            if (mLayered) {
+                drawLayered(canvas, bounds);
+            } else {
+                drawImmediate(canvas, bounds);
+            }
+        }
+
+        private int toTwelveHour(int hour){
             if (hour == 12 || hour == 0)
-                return Integer.toString(12);
+                return 12;
             else
-                return String.format("%02d", hour % 12);
+                return hour % 12;
+        }
+
+        private void setTimeZone(TimeZone timeZone) {
+            mTimeZone = timeZone;
+            mZoneOffsetValidUntilMs = 0;
+        }
+
+        private void updateTime(long nowMs) {
+            if (nowMs >= mZoneOffsetValidUntilMs) {
+                // Zones change their offset on a minute boundary, look it up again on the next
+                mZoneOffsetMs = mTimeZone.getOffset(nowMs);
+                mZoneOffsetValidUntilMs = nowMs - nowMs % DateUtils.MINUTE_IN_MILLIS
+                        + DateUtils.MINUTE_IN_MILLIS;
+            }
+            long localMinutes = (nowMs + mZoneOffsetMs) / DateUtils.MINUTE_IN_MILLIS;
+            mMinute = (int) (localMinutes % 60);
+            mHour = (int) (localMinutes / 60 % 24);
         }
 
         /**
@@ -461,55 +785,84 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             }
         }
 
-        private void handleUpdateWeatherMessage() {
-
-            Log.d(LOG_TAG, "in handleUpdateWeatherMessage");
-            requestWeatherData();
-
-            long timeMs = System.currentTimeMillis();
-            long delayMs = WEATHER_UPDATE_RATE_MS
-                        - (timeMs % WEATHER_UPDATE_RATE_MS);
-            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_WEATHER, delayMs);
-        }
-
-        private void retrieveDeviceNode() {
+        /**
+         * Reference: https://github.com/twotoasters/Wear-MessageApiDemo/blob/master/wear/src/main/java/com/twotoasters/messageapidemo/MyActivity.java
+         * Asks the connected mobile device to send the weather.  The node lookup and the message
+         * go out on the same thread, so the very first request isn't lost.  A watch without the
+         * icon atlas or the weather, e.g. after its data was cleared, reads them from the
+         * phone's DataItems, since the phone only puts the weather again once it changed.
+         */
+        private void requestWeatherData() {
+            Log.d(LOG_TAG, "requesting weather data");
+            final GoogleApiClient googleApiClient =
+                    new GoogleApiClient.Builder(SunshineWatchFaceService.this)
+                            .addApi(Wearable.API)
+                            .build();
             new Thread(new Runnable() {
                 @Override
                 public void run() {
-                    mGoogleApiClient.blockingConnect(CONNECTION_TIME_OUT_MS, TimeUnit.MILLISECONDS);
+                    if (!googleApiClient.blockingConnect(CONNECTION_TIME_OUT_MS,
+                            TimeUnit.MILLISECONDS).isSuccess()) {
+                        Log.d(LOG_TAG, "Failed to connect to GoogleApiClient");
+                        return;
+                    }
                     NodeApi.GetConnectedNodesResult result =
-                            Wearable.NodeApi.getConnectedNodes(mGoogleApiClient).await();
+                            Wearable.NodeApi.getConnectedNodes(googleApiClient).await();
                     List<Node> nodes = result.getNodes();
                     if (nodes.size() > 0) {
-                        nodeId = nodes.get(0).getId();
+                        String nodeId = nodes.get(0).getId();
+                        if (!WeatherIconAtlas.isSaved(SunshineWatchFaceService.this)) {
+                            fetchIconAtlas(googleApiClient, nodeId);
+                        }
+                        if (StoredWeather.read(SunshineWatchFaceService.this) == null) {
+                            fetchWeather(googleApiClient, nodeId);
+                        }
+                        Wearable.MessageApi.sendMessage(googleApiClient, nodeId,
+                                AppConstants.PATH_REQUEST_WEATHER, null).await();
                     }
-                    mGoogleApiClient.disconnect();
+                    googleApiClient.disconnect();
                 }
             }).start();
         }
 
+        private void fetchIconAtlas(GoogleApiClient googleApiClient, String nodeId) {
+            DataMap dataMap = getDataMap(googleApiClient, nodeId, AppConstants.PATH_ICON_ATLAS);
+            if (dataMap != null
+                    && WeatherIconAtlas.save(SunshineWatchFaceService.this, googleApiClient,
+                    dataMap) == WeatherIconAtlas.SAVE_STORED) {
+                LocalBroadcastManager.getInstance(SunshineWatchFaceService.this).sendBroadcast(
+                        new Intent(AppConstants.ICON_ATLAS_UPDATE_BROADCAST));
+            }
+        }
+
+        private void fetchWeather(GoogleApiClient googleApiClient, String nodeId) {
+            DataMap dataMap = getDataMap(googleApiClient, nodeId,
+                    AppConstants.PATH_WEATHER_UPDATE);
+            if (dataMap == null) {
+                return;
+            }
+            // How old it is isn't known, the freshness the phone sends for the request follows
+            StoredWeather weather = StoredWeather.fromDataMap(dataMap, 0, 0);
+            weather.write(SunshineWatchFaceService.this);
+            LocalBroadcastManager.getInstance(SunshineWatchFaceService.this).sendBroadcast(
+                    weather.putTo(new Intent(AppConstants.WEATHER_UPDATE_BROADCAST)));
+        }
+
         /**
-         * Reference: https://github.com/twotoasters/Wear-MessageApiDemo/blob/master/wear/src/main/java/com/twotoasters/messageapidemo/MyActivity.java
-         * Sends a message to the connected mobile device.
+         * @return the DataItem the phone put at the path, or null if there is none
          */
-        private void requestWeatherData() {
-            Log.d(LOG_TAG, "requesting weather data");
-            mGoogleApiClient = new GoogleApiClient.Builder(SunshineWatchFaceService.this)
-                    .addApi(Wearable.API)
+        private DataMap getDataMap(GoogleApiClient googleApiClient, String nodeId, String path) {
+            Uri uri = new Uri.Builder()
+                    .scheme(PutDataRequest.WEAR_URI_SCHEME)
+                    .authority(nodeId)
+                    .path(path)
                     .build();
-
-            retrieveDeviceNode();
-
-            if (nodeId != null) {
-                new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        mGoogleApiClient.blockingConnect(CONNECTION_TIME_OUT_MS, TimeUnit.MILLISECONDS);
-                        Wearable.MessageApi.sendMessage(mGoogleApiClient, nodeId, AppConstants.PATH_REQUEST_WEATHER, null);
-                        mGoogleApiClient.disconnect();
-                    }
-                }).start();
+            DataApi.DataItemResult result =
+                    Wearable.DataApi.getDataItem(googleApiClient, uri).await();
+            if (!result.getStatus().isSuccess() || result.getDataItem() == null) {
+                return null;
             }
+            return DataMapItem.fromDataItem(result.getDataItem()).getDataMap();
         }
     }
 
@@ -528,8 +881,6 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
                     case MSG_UPDATE_TIME:
                         engine.handleUpdateTimeMessage();
                         break;
-                    case MSG_UPDATE_WEATHER:
-                        engine.handleUpdateWeatherMessage();
                 }
             }
         }
@@ -0,0 +1,178 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.Log;
+
+import com.example.android.sunshine.app.constants.AppConstants;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.Asset;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.Wearable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The strip of weather icons the phone sends once.  It is kept in a file, so the watch face
+ * has its icons right away after a restart, and icons are drawn as cells of the strip.
+ */
+public class WeatherIconAtlas {
+
+    private static final String LOG_TAG = WeatherIconAtlas.class.getSimpleName();
+
+    private static final String FILE_NAME = "icon_atlas.png";
+    private static final String PREFS_NAME = "icon_atlas";
+    private static final String PREF_VERSION = "version";
+    private static final String PREF_ICON_SIZE = "icon_size";
+    private static final String PREF_ICON_COUNT = "icon_count";
+
+    private static final long ASSET_TIMEOUT_S = 30;
+
+    // What save() did with an atlas
+    public static final int SAVE_STORED = 0;
+    public static final int SAVE_UNCHANGED = 1;
+    public static final int SAVE_FAILED = 2;
+    // Pixels at least this opaque are lit in the ambient variant
+    private static final int ONE_BIT_ALPHA_THRESHOLD = 0x80;
+
+    private final Bitmap mBitmap;
+    private final int mVersion;
+    private final int mIconSize;
+    private final int mIconCount;
+
+    // Reused by draw(), which runs for every frame
+    private final Rect mSource = new Rect();
+    private final RectF mDestination = new RectF();
+
+    private WeatherIconAtlas(Bitmap bitmap, int version, int iconSize, int iconCount) {
+        mBitmap = bitmap;
+        mVersion = version;
+        mIconSize = iconSize;
+        mIconCount = iconCount;
+    }
+
+    public int getVersion() {
+        return mVersion;
+    }
+
+    public int getIconSize() {
+        return mIconSize;
+    }
+
+    /**
+     * Draws one icon with its top left corner at (left, top).
+     */
+    public void draw(Canvas canvas, int index, float left, float top, Paint paint) {
+        if (index < 0 || index >= mIconCount) {
+            return;
+        }
+        mSource.set(index * mIconSize, 0, (index + 1) * mIconSize, mIconSize);
+        mDestination.set(left, top, left + mIconSize, top + mIconSize);
+        canvas.drawBitmap(mBitmap, mSource, mDestination, paint);
+    }
+
+    /**
+     * @return the same icons with every pixel either white or transparent, for ambient mode
+     */
+    public WeatherIconAtlas createOneBitVariant() {
+        int width = mBitmap.getWidth();
+        int height = mBitmap.getHeight();
+        int[] pixels = new int[width * height];
+        mBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = Color.alpha(pixels[i]) >= ONE_BIT_ALPHA_THRESHOLD
+                    ? Color.WHITE : Color.TRANSPARENT;
+        }
+        Bitmap oneBit = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+        return new WeatherIconAtlas(oneBit, mVersion, mIconSize, mIconCount);
+    }
+
+    /**
+     * @return the atlas kept on the watch, or null if the phone didn't send one yet
+     */
+    public static WeatherIconAtlas load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int version = prefs.getInt(PREF_VERSION, 0);
+        if (version == 0) {
+            return null;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(
+                new File(context.getFilesDir(), FILE_NAME).getPath());
+        if (bitmap == null) {
+            return null;
+        }
+        return new WeatherIconAtlas(bitmap, version, prefs.getInt(PREF_ICON_SIZE, 0),
+                prefs.getInt(PREF_ICON_COUNT, 0));
+    }
+
+    public static boolean isSaved(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getInt(PREF_VERSION, 0) != 0;
+    }
+
+    /**
+     * Copies the atlas of an icon atlas DataItem to the watch's storage, unless that version is
+     * already there.  Blocks, so call it on a background thread with a connected client.
+     *
+     * @return {@link #SAVE_STORED} if the watch has a different atlas now,
+     * {@link #SAVE_UNCHANGED} if it already had that version, {@link #SAVE_FAILED} otherwise
+     */
+    public static int save(Context context, GoogleApiClient client, DataMap dataMap) {
+        int version = dataMap.getInt(AppConstants.KEY_ICON_ATLAS_VERSION);
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (version == prefs.getInt(PREF_VERSION, 0)) {
+            return SAVE_UNCHANGED;
+        }
+        Asset asset = dataMap.getAsset(AppConstants.KEY_ICON_ATLAS);
+        if (asset == null) {
+            Log.d(LOG_TAG, "Icon atlas without an Asset");
+            return SAVE_FAILED;
+        }
+        InputStream in = Wearable.DataApi.getFdForAsset(client, asset)
+                .await(ASSET_TIMEOUT_S, TimeUnit.SECONDS).getInputStream();
+        if (in == null) {
+            Log.w(LOG_TAG, "Requested an unknown Asset.");
+            return SAVE_FAILED;
+        }
+        try {
+            copy(in, new File(context.getFilesDir(), FILE_NAME));
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to store the icon atlas", e);
+            return SAVE_FAILED;
+        }
+        // commit, the watch face reads it as soon as it hears about it
+        prefs.edit()
+                .putInt(PREF_VERSION, version)
+                .putInt(PREF_ICON_SIZE, dataMap.getInt(AppConstants.KEY_ICON_SIZE))
+                .putInt(PREF_ICON_COUNT, dataMap.getInt(AppConstants.KEY_ICON_COUNT))
+                .commit();
+        Log.d(LOG_TAG, "Stored icon atlas version " + version);
+        return SAVE_STORED;
+    }
+
+    private static void copy(InputStream in, File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            out.close();
+            in.close();
+        }
+    }
+}
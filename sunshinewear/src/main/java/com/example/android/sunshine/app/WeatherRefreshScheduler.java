@@ -0,0 +1,84 @@
+package com.example.android.sunshine.app;
+
+import android.text.format.DateUtils;
+
+/**
+ * Decides when the watch face asks the phone for weather.
+ *
+ * The phone pushes new weather after each of its syncs, so asking only pays off once the
+ * phone's next sync should have happened and nothing arrived.  Until then requests are
+ * suppressed.  A request that goes unanswered is retried with exponential backoff, so an
+ * unreachable phone isn't asked every time the face becomes visible.
+ */
+class WeatherRefreshScheduler {
+
+    static final long MIN_BACKOFF_MS = DateUtils.MINUTE_IN_MILLIS;
+    static final long MAX_BACKOFF_MS = DateUtils.HOUR_IN_MILLIS;
+
+    // Time for the phone to publish after its sync
+    static final long SYNC_GRACE_MS = 5 * DateUtils.MINUTE_IN_MILLIS;
+
+    // 0 until there is weather, i.e. refresh right away
+    private long mRefreshAtMs;
+    private long mRetryAtMs;
+    private long mBackoffMs = MIN_BACKOFF_MS;
+
+    private int mRequestsSent;
+    private int mRequestsSuppressed;
+
+    /**
+     * @param timestamp when the phone published the weather
+     * @param nextSyncMs by when the phone's next sync should have happened, 0 if unknown
+     */
+    synchronized void onWeather(long timestamp, long nextSyncMs) {
+        long refreshAtMs = nextSyncMs > 0
+                ? nextSyncMs + SYNC_GRACE_MS
+                : timestamp + StoredWeather.STALE_AFTER_MS;
+        // The stored weather is read again on visibility changes, that is no answer
+        if (refreshAtMs <= mRefreshAtMs) {
+            return;
+        }
+        mRefreshAtMs = refreshAtMs;
+        mRetryAtMs = 0;
+        mBackoffMs = MIN_BACKOFF_MS;
+    }
+
+    /**
+     * Call whenever the watch face is created, becomes visible or changes ambient mode.
+     *
+     * @return true if it should ask now, the request is then counted as sent
+     */
+    synchronized boolean shouldRequest(long nowMs) {
+        return shouldRequest(nowMs, true);
+    }
+
+    /**
+     * Like {@link #shouldRequest(long)}, for the time tick.  The tick comes every minute, so
+     * not asking then isn't counted as a suppressed request.
+     */
+    synchronized boolean shouldRequestOnTick(long nowMs) {
+        return shouldRequest(nowMs, false);
+    }
+
+    private boolean shouldRequest(long nowMs, boolean countSuppressed) {
+        if (nowMs < mRefreshAtMs || nowMs < mRetryAtMs) {
+            if (countSuppressed) {
+                mRequestsSuppressed++;
+            }
+            return false;
+        }
+        mRequestsSent++;
+        // Unless weather arrives first, try again after the backoff
+        mRetryAtMs = nowMs + mBackoffMs;
+        mBackoffMs = Math.min(mBackoffMs * 2, MAX_BACKOFF_MS);
+        return true;
+    }
+
+    synchronized int getRequestsSent() {
+        return mRequestsSent;
+    }
+
+    synchronized int getRequestsSuppressed() {
+        return mRequestsSuppressed;
+    }
+}
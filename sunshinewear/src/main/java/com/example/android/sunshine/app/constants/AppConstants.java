@@ -4,10 +4,21 @@ public class AppConstants {
 
     public static final String KEY_HIGH_TEMPERATURE = "highTemperature";
     public static final String KEY_LOW_TEMPERATURE = "lowTemperature";
-    public static final String KEY_WEATHER_ICON = "weatherIcon";
+    public static final String KEY_WEATHER_ID = "weatherId";
+    public static final String KEY_FORECAST = "forecast";
+    public static final String KEY_NEXT_SYNC = "nextSync";
+    public static final String KEY_TIMESTAMP = "time";
+    public static final String KEY_ICON_INDEX = "iconIndex";
+    public static final String KEY_ICON_ATLAS = "iconAtlas";
+    public static final String KEY_ICON_ATLAS_VERSION = "iconAtlasVersion";
+    public static final String KEY_ICON_SIZE = "iconSize";
+    public static final String KEY_ICON_COUNT = "iconCount";
     public static final String PATH_REQUEST_WEATHER = "/request-weather";
     public static final String PATH_WEATHER_UPDATE = "/weather-update";
+    public static final String PATH_ICON_ATLAS = "/icon-atlas";
+    public static final String PATH_WEATHER_FRESHNESS = "/weather-freshness";
     public static final String WEATHER_UPDATE_BROADCAST = "weather-update-broadcast";
+    public static final String ICON_ATLAS_UPDATE_BROADCAST = "icon-atlas-update-broadcast";
     public static final String TEMPERATURE_TEXT_PLACEHOLDER  = "00" + "\u00b0";
     public static final String TIME_TEXT_PLACEHOLDER  = "00";
 }
@@ -0,0 +1,105 @@
+package com.example.android.sunshine.app;
+
+import junit.framework.TestCase;
+
+/*
+    Plain JVM test of when the watch face asks the phone for weather: the backoff of
+    unanswered requests, its reset when weather arrives and the grace after the phone's sync.
+ */
+public class TestWeatherRefreshScheduler extends TestCase {
+
+    // Any wall clock time, far from 0
+    private static final long NOW = 1444000000000L;
+
+    private WeatherRefreshScheduler mScheduler;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mScheduler = new WeatherRefreshScheduler();
+    }
+
+    public void testRequestsRightAwayWithoutWeather() {
+        assertTrue("Error: no request without weather", mScheduler.shouldRequest(NOW));
+        assertEquals(1, mScheduler.getRequestsSent());
+        assertEquals(0, mScheduler.getRequestsSuppressed());
+    }
+
+    public void testUnansweredRequestsBackOff() {
+        long at = NOW;
+        long backoff = WeatherRefreshScheduler.MIN_BACKOFF_MS;
+        assertTrue(mScheduler.shouldRequest(at));
+        for (int i = 0; i < 10; i++) {
+            assertFalse("Error: asked again " + (backoff - 1) + "ms after an unanswered request",
+                    mScheduler.shouldRequest(at + backoff - 1));
+            at += backoff;
+            assertTrue("Error: didn't ask again " + backoff + "ms after an unanswered request",
+                    mScheduler.shouldRequest(at));
+            backoff = Math.min(backoff * 2, WeatherRefreshScheduler.MAX_BACKOFF_MS);
+        }
+        assertEquals("Error: the backoff isn't capped",
+                WeatherRefreshScheduler.MAX_BACKOFF_MS, backoff);
+        assertEquals(11, mScheduler.getRequestsSent());
+        assertEquals(10, mScheduler.getRequestsSuppressed());
+    }
+
+    public void testNewWeatherResetsTheBackoff() {
+        long at = NOW;
+        for (int i = 0; i < 5; i++) {
+            assertTrue(mScheduler.shouldRequest(at));
+            at += WeatherRefreshScheduler.MAX_BACKOFF_MS;
+        }
+
+        mScheduler.onWeather(at, 0);
+        long refreshAt = at + StoredWeather.STALE_AFTER_MS;
+        assertFalse("Error: asked for weather that isn't stale yet",
+                mScheduler.shouldRequest(refreshAt - 1));
+        assertTrue("Error: didn't ask for stale weather", mScheduler.shouldRequest(refreshAt));
+        assertFalse("Error: the backoff wasn't reset by new weather",
+                mScheduler.shouldRequest(refreshAt + WeatherRefreshScheduler.MIN_BACKOFF_MS - 1));
+        assertTrue("Error: the backoff wasn't reset by new weather",
+                mScheduler.shouldRequest(refreshAt + WeatherRefreshScheduler.MIN_BACKOFF_MS));
+    }
+
+    public void testOlderWeatherDoesNotResetTheBackoff() {
+        mScheduler.onWeather(NOW, 0);
+        long refreshAt = NOW + StoredWeather.STALE_AFTER_MS;
+        assertTrue(mScheduler.shouldRequest(refreshAt));
+        assertTrue(mScheduler.shouldRequest(refreshAt + WeatherRefreshScheduler.MIN_BACKOFF_MS));
+
+        // The same weather read again when the face becomes visible
+        mScheduler.onWeather(NOW, 0);
+        long backoff = 2 * WeatherRefreshScheduler.MIN_BACKOFF_MS;
+        long retryAt = refreshAt + WeatherRefreshScheduler.MIN_BACKOFF_MS + backoff;
+        assertFalse("Error: the backoff was reset by weather that isn't new",
+                mScheduler.shouldRequest(retryAt - 1));
+        assertTrue(mScheduler.shouldRequest(retryAt));
+    }
+
+    public void testWaitsForTheNextSyncAndItsGrace() {
+        long nextSync = NOW + 3 * WeatherRefreshScheduler.MAX_BACKOFF_MS;
+        mScheduler.onWeather(NOW, nextSync);
+        long refreshAt = nextSync + WeatherRefreshScheduler.SYNC_GRACE_MS;
+        assertFalse("Error: asked before the phone's sync",
+                mScheduler.shouldRequest(nextSync - 1));
+        assertFalse("Error: asked before the phone had time to publish its sync",
+                mScheduler.shouldRequest(refreshAt - 1));
+        assertTrue("Error: didn't ask after a missed sync", mScheduler.shouldRequest(refreshAt));
+    }
+
+    public void testTicksAreNotCountedAsSuppressed() {
+        mScheduler.onWeather(NOW, 0);
+        long refreshAt = NOW + StoredWeather.STALE_AFTER_MS;
+        for (long at = NOW; at < refreshAt; at += 60 * 1000) {
+            assertFalse(mScheduler.shouldRequestOnTick(at));
+        }
+        assertEquals("Error: time ticks counted as suppressed requests",
+                0, mScheduler.getRequestsSuppressed());
+        assertTrue("Error: the tick didn't ask for stale weather",
+                mScheduler.shouldRequestOnTick(refreshAt));
+        assertEquals(1, mScheduler.getRequestsSent());
+
+        assertFalse(mScheduler.shouldRequest(refreshAt + 1));
+        assertEquals(1, mScheduler.getRequestsSuppressed());
+    }
+}